@@ -0,0 +1,113 @@
+package nl.han.ica.icss.benchmarks;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.ASTNode;
+import nl.han.ica.icss.ast.NodeKind;
+import nl.han.ica.icss.ast.flat.FlatAST;
+import nl.han.ica.icss.ast.literals.PixelLiteral;
+import nl.han.ica.icss.checker.Checker;
+import nl.han.ica.icss.generator.Generator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Object AST against FlatAST: a full traversal, a traversal that follows the tree structure,
+ * checking and generation. The retained heap size of both forms is printed once per trial.
+ * FlatAST checks and generates one expanded statement at a time, so during those only the arrays
+ * and one statement are live.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Djdk.attach.allowAttachSelf"})
+@State(Scope.Benchmark)
+public class FlatASTBenchmark {
+
+    @Param({"level3", "synthetic-1000", "synthetic-100000", "synthetic-1000000"})
+    public String input;
+
+    private AST ast;
+    private FlatAST flat;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        Pipeline pipeline = new Pipeline();
+        pipeline.parseString(Stylesheets.load(input));
+        ast = pipeline.getAST();
+        flat = FlatAST.of(ast);
+
+        long source = Stylesheets.load(input).length();
+        long objects = GraphLayout.parseInstance(ast).totalSize();
+        long arrays = GraphLayout.parseInstance(flat).totalSize();
+        System.out.printf("%n%s footprint: source %d chars, AST %d bytes, FlatAST %d bytes (%.1fx smaller)%n",
+                input, source, objects, arrays, (double) objects / arrays);
+    }
+
+    //Sum of all pixel values, visiting every node
+    @Benchmark
+    public long walkAST() {
+        return walk(ast.root);
+    }
+
+    private static long walk(ASTNode node) {
+        long sum = node instanceof PixelLiteral ? ((PixelLiteral) node).value : 0;
+        for (int i = 0; i < node.getChildCount(); i++) {
+            ASTNode child = node.getChild(i);
+            if (child != null) {
+                sum += walk(child);
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long scanFlat() {
+        long sum = 0;
+        for (int node = 0; node < flat.size(); node++) {
+            if (flat.kind(node) == NodeKind.PIXEL_LITERAL) {
+                sum += flat.value(node);
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long walkFlat() {
+        return walk(flat, 0);
+    }
+
+    private static long walk(FlatAST flat, int node) {
+        long sum = flat.kind(node) == NodeKind.PIXEL_LITERAL ? flat.value(node) : 0;
+        for (int child = node + 1; child < flat.end(node); child = flat.end(child)) {
+            sum += walk(flat, child);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public AST checkAST() {
+        ast.clearErrors();
+        new Checker().check(ast);
+        return ast;
+    }
+
+    @Benchmark
+    public boolean checkFlat() {
+        return flat.check();
+    }
+
+    @Benchmark
+    public String generateAST() {
+        return new Generator().generate(ast);
+    }
+
+    @Benchmark
+    public String generateFlat() {
+        return flat.generate();
+    }
+}
@@ -0,0 +1,147 @@
+package nl.han.ica.icss.benchmarks;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.checker.Checker;
+import nl.han.ica.icss.generator.Generator;
+import nl.han.ica.icss.parser.ASTListener;
+import nl.han.ica.icss.parser.ICSSLexer;
+import nl.han.ica.icss.parser.ICSSParser;
+import nl.han.ica.icss.parser.PackedLexer;
+import nl.han.ica.icss.snapshot.ASTSnapshot;
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput and average latency of every pipeline stage, in isolation and combined.
+ * Each stage starts from the output of the previous stages, prepared once per trial.
+ * The transforms change the AST in place and need a fresh copy for every operation, they are
+ * measured in TransformBenchmark. loadSnapshot measures such a copy.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class PipelineBenchmark {
+
+    @Param({"level0", "level1", "level2", "level3", "synthetic-1000", "synthetic-100000", "synthetic-1000000"})
+    public String input;
+
+    private String source;
+    private List<Token> tokens;
+    private ParseTree parseTree;
+    private AST checkedAST;
+    private AST transformedAST;
+    private byte[] checkedSnapshot;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        source = Stylesheets.load(input);
+
+        CommonTokenStream tokenStream = new CommonTokenStream(new ICSSLexer(CharStreams.fromString(source)));
+        tokenStream.fill();
+        tokens = new ArrayList<>(tokenStream.getTokens());
+
+        parseTree = parser(PredictionMode.SLL).stylesheet();
+
+        Pipeline pipeline = new Pipeline();
+        pipeline.parseString(source);
+        if (!pipeline.check()) {
+            throw new IllegalStateException(input + " does not check: " + pipeline.getErrors());
+        }
+        checkedAST = pipeline.getAST();
+        checkedSnapshot = ASTSnapshot.toBytes(checkedAST);
+
+        pipeline.transform();
+        transformedAST = pipeline.getAST();
+    }
+
+    private ICSSParser parser(PredictionMode predictionMode) {
+        ICSSParser parser = new ICSSParser(new CommonTokenStream(new ListTokenSource(tokens)));
+        parser.removeErrorListeners();
+        parser.getInterpreter().setPredictionMode(predictionMode);
+        return parser;
+    }
+
+    @Benchmark
+    public int lex() {
+        CommonTokenStream tokenStream = new CommonTokenStream(new ICSSLexer(CharStreams.fromString(source)));
+        tokenStream.fill();
+        return tokenStream.size();
+    }
+
+    @Benchmark
+    public int lexPacked() {
+        PackedLexer lexer = new PackedLexer(CharStreams.fromString(source));
+        return lexer.getTokenCount();
+    }
+
+    @Benchmark
+    public ParseTree parseLL() {
+        return parser(PredictionMode.LL).stylesheet();
+    }
+
+    @Benchmark
+    public ParseTree parseSLL() {
+        return parser(PredictionMode.SLL).stylesheet();
+    }
+
+    @Benchmark
+    public AST buildAST() {
+        ASTListener listener = new ASTListener();
+        new ParseTreeWalker().walk(listener, parseTree);
+        return listener.getAST();
+    }
+
+    @Benchmark
+    public AST check() {
+        new Checker().check(checkedAST);
+        return checkedAST;
+    }
+
+    @Benchmark
+    public AST checkSeparatePasses() {
+        Checker checker = new Checker();
+        checker.setFusedPasses(false);
+        checker.check(checkedAST);
+        return checkedAST;
+    }
+
+    @Benchmark
+    public AST checkParallel() {
+        Checker checker = new Checker();
+        checker.setParallel(true);
+        checker.check(checkedAST);
+        return checkedAST;
+    }
+
+    @Benchmark
+    public AST loadSnapshot() throws IOException {
+        return ASTSnapshot.read(ByteBuffer.wrap(checkedSnapshot));
+    }
+
+    @Benchmark
+    public String generate() {
+        return new Generator().generate(transformedAST);
+    }
+
+    @Benchmark
+    public String pipeline() {
+        Pipeline pipeline = new Pipeline();
+        pipeline.parseString(source);
+        pipeline.check();
+        pipeline.transform();
+        return pipeline.generate();
+    }
+}
@@ -0,0 +1,59 @@
+package nl.han.ica.icss.benchmarks;
+
+import com.google.common.io.Resources;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Benchmark inputs: the bundled level0-level3 files, or "synthetic-N" for a generated stylesheet with N stylerules.
+ */
+public class Stylesheets {
+
+    private static final String SYNTHETIC = "synthetic-";
+
+    private Stylesheets() {
+    }
+
+    public static String load(String name) throws IOException {
+        if (name.startsWith(SYNTHETIC)) {
+            return synthetic(Integer.parseInt(name.substring(SYNTHETIC.length())));
+        }
+        return Resources.toString(Resources.getResource(name + ".icss"), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A valid stylesheet with the given number of stylerules, using every language feature:
+     * variables, all literal types, operations and (nested) if clauses.
+     */
+    public static String synthetic(int rules) {
+        StringBuilder source = new StringBuilder(rules * 120);
+        source.append("LinkColor := #ff0000;\n");
+        source.append("ParWidth := 500px;\n");
+        source.append("Factor := 3;\n");
+        source.append("AdjustColor := TRUE;\n");
+        source.append("UseLinkColor := FALSE;\n\n");
+
+        for (int i = 0; i < rules; i++) {
+            switch (i % 3) {
+                case 0: source.append("p"); break;
+                case 1: source.append(".item-").append(i); break;
+                default: source.append("#menu-").append(i); break;
+            }
+            source.append(" {\n");
+            source.append("\tcolor: #").append(String.format("%06x", (i * 2654435761L) & 0xffffff)).append(";\n");
+            source.append("\twidth: ParWidth + Factor * ").append(i % 100).append("px;\n");
+            source.append("\theight: ").append(i % 100).append("%;\n");
+            if (i % 4 == 0) {
+                source.append("\tif[AdjustColor] {\n");
+                source.append("\t\tbackground-color: LinkColor;\n");
+                source.append("\t\tif[UseLinkColor] {\n");
+                source.append("\t\t\tcolor: LinkColor;\n");
+                source.append("\t\t}\n");
+                source.append("\t}\n");
+            }
+            source.append("}\n");
+        }
+        return source.toString();
+    }
+}
@@ -0,0 +1,88 @@
+package nl.han.ica.icss.benchmarks;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.snapshot.ASTSnapshot;
+import nl.han.ica.icss.transforms.EvalExpressions;
+import nl.han.ica.icss.transforms.RemoveIf;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The transforms of the pipeline on a checked AST, without the cost of getting a fresh copy.
+ *
+ * A transform changes its AST in place, so every operation needs its own copy. The copies are loaded
+ * from a snapshot before each invocation, COPIES at a time, and each invocation transforms all of them.
+ * The setup and its timestamps are spread over the batch, which keeps them out of the result for the
+ * small inputs. The batch of the largest input would not fit in the heap, see PipelineBenchmark.pipeline
+ * for that one. evalExpressionsPersistent transforms a frozen AST, which needs no copy.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class TransformBenchmark {
+
+    static final int COPIES = 8;
+
+    @Param({"level0", "level1", "level2", "level3", "synthetic-1000", "synthetic-100000"})
+    public String input;
+
+    private byte[] checkedSnapshot;
+    private AST frozenAST;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        Pipeline pipeline = new Pipeline();
+        pipeline.parseString(Stylesheets.load(input));
+        if (!pipeline.check()) {
+            throw new IllegalStateException(input + " does not check: " + pipeline.getErrors());
+        }
+        checkedSnapshot = ASTSnapshot.toBytes(pipeline.getAST());
+        frozenAST = ASTSnapshot.read(ByteBuffer.wrap(checkedSnapshot));
+        frozenAST.freeze();
+    }
+
+    /**
+     * A batch of fresh copies of the checked AST for every invocation.
+     */
+    @State(Scope.Thread)
+    public static class Copies {
+        final AST[] asts = new AST[COPIES];
+
+        @Setup(Level.Invocation)
+        public void load(TransformBenchmark benchmark) throws IOException {
+            for (int i = 0; i < COPIES; i++) {
+                asts[i] = ASTSnapshot.read(ByteBuffer.wrap(benchmark.checkedSnapshot));
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COPIES)
+    public AST evalExpressions(Copies copies) {
+        for (AST ast : copies.asts) {
+            new EvalExpressions().apply(ast);
+        }
+        return copies.asts[COPIES - 1];
+    }
+
+    @Benchmark
+    public AST evalExpressionsPersistent() {
+        return new EvalExpressions().applyToVersion(frozenAST);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COPIES)
+    public AST removeIf(Copies copies) {
+        for (AST ast : copies.asts) {
+            new RemoveIf().apply(ast);
+        }
+        return copies.asts[COPIES - 1];
+    }
+}
@@ -1,33 +1,82 @@
 package nl.han.ica.icss;
 
 import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.NodeInterner;
 import nl.han.ica.icss.checker.Checker;
+import nl.han.ica.icss.checker.DiagnosticListener;
 import nl.han.ica.icss.checker.SemanticError;
 import nl.han.ica.icss.generator.Generator;
 import nl.han.ica.icss.parser.ASTListener;
+import nl.han.ica.icss.parser.AsciiByteSequence;
+import nl.han.ica.icss.parser.CharSequenceCharStream;
 import nl.han.ica.icss.parser.ICSSLexer;
 import nl.han.ica.icss.parser.ICSSParser;
+import nl.han.ica.icss.parser.PackedLexer;
 import nl.han.ica.icss.transforms.EvalExpressions;
 import nl.han.ica.icss.transforms.RemoveIf;
+import nl.han.ica.icss.transforms.Transform;
 import org.antlr.v4.runtime.*;
 import org.antlr.v4.runtime.atn.ATNConfigSet;
+import org.antlr.v4.runtime.atn.PredictionMode;
 import org.antlr.v4.runtime.dfa.DFA;
+import org.antlr.v4.runtime.misc.Interval;
 import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.antlr.v4.runtime.tree.ParseTree;
 import org.antlr.v4.runtime.tree.ParseTreeWalker;
 
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.List;
 
 public class Pipeline implements ANTLRErrorListener {
 
+    //Version of the compiler, part of the compile cache key with a hash of the build (see CompilerFingerprint)
+    public static final String VERSION = "2020.1.1-February";
+
     private AST ast;
     private boolean parsed = false;
     private boolean checked = false;
     private boolean transformed = false;
     private List<String> errors;
 
+    //Source of the last parse and the character ranges of its top-level statements (for parseEdit)
+    private CharSequence source = "";
+    private List<Interval> statements;
+    //Set when a transformation changed the AST, it then no longer matches the source
+    private boolean modified = false;
+    //When false the AST is built during parsing and no Antlr parse tree is constructed
+    private boolean buildParseTree = true;
+    //When true the hand-written PackedLexer is used instead of the generated ICSSLexer
+    private boolean packedLexer = false;
+    //When true identical subtrees share one instance, see NodeInterner
+    private boolean hashConsing = false;
+    private NodeInterner interner;
+    //When true the parsed AST is frozen and transform() creates a new version that shares the
+    //unchanged subtrees with it (path copying), see AST.version
+    private boolean persistent = false;
+    private AST parsedAST;
+    //When true the stylerules are checked concurrently, see Checker.setParallel
+    private boolean parallelCheck = false;
+    //When true one Checker is kept that only checks what changed since the last check, see Checker.setIncremental
+    private boolean incrementalCheck = false;
+    private Checker checker;
+    //When set the semantic errors are streamed to it instead of added to getErrors(), see DiagnosticListener
+    private DiagnosticListener diagnosticListener;
+
+    //Number of parses of this pipeline that succeeded with SLL prediction and that needed the LL fallback
+    private long sllParses = 0;
+    private long llFallbacks = 0;
+
+    //Lexer and parser are reused by every parse of this pipeline
+    private ICSSLexer icssLexer;
+    private ICSSParser icssParser;
+
     public Pipeline() {
         errors = new ArrayList<>();
     }
@@ -35,6 +84,14 @@ public class Pipeline implements ANTLRErrorListener {
     public AST getAST() {
         return ast;
     }
+    /**
+     * The AST before transform(), kept only with persistent versions. Checking sets errors on its
+     * nodes but does not change its structure, so it is also the checked version.
+     * @return the parsed version, null without persistent versions
+     */
+    public AST getParsedAST() {
+        return parsedAST;
+    }
     public List<String> getErrors() {
         return errors;
     }
@@ -47,51 +104,330 @@ public class Pipeline implements ANTLRErrorListener {
     public boolean isTransformed() {
         return transformed;
     }
+    public boolean isBuildParseTree() {
+        return buildParseTree;
+    }
+    public void setBuildParseTree(boolean buildParseTree) {
+        this.buildParseTree = buildParseTree;
+    }
+    public boolean isPackedLexer() {
+        return packedLexer;
+    }
+    public void setPackedLexer(boolean packedLexer) {
+        this.packedLexer = packedLexer;
+    }
+    public boolean isHashConsing() {
+        return hashConsing;
+    }
+    public void setHashConsing(boolean hashConsing) {
+        this.hashConsing = hashConsing;
+    }
+    public boolean isPersistent() {
+        return persistent;
+    }
+    public void setPersistent(boolean persistent) {
+        this.persistent = persistent;
+    }
+    public boolean isParallelCheck() {
+        return parallelCheck;
+    }
+    public void setParallelCheck(boolean parallelCheck) {
+        this.parallelCheck = parallelCheck;
+    }
+    public boolean isIncrementalCheck() {
+        return incrementalCheck;
+    }
+    public void setIncrementalCheck(boolean incrementalCheck) {
+        this.incrementalCheck = incrementalCheck;
+        checker = null;
+    }
+    public DiagnosticListener getDiagnosticListener() {
+        return diagnosticListener;
+    }
+    public void setDiagnosticListener(DiagnosticListener diagnosticListener) {
+        this.diagnosticListener = diagnosticListener;
+    }
+    //The checker of the last check, kept between checks when incremental
+    public Checker getChecker() {
+        return checker;
+    }
+    //Deduplication statistics of the last parse and transform, null without hash-consing
+    public NodeInterner getInterner() {
+        return interner;
+    }
+    public long getSllParseCount() {
+        return sllParses;
+    }
+    public long getLlFallbackCount() {
+        return llFallbacks;
+    }
+    public void resetParseCounts() {
+        sllParses = 0;
+        llFallbacks = 0;
+    }
 
     public void parseString(String input) {
+        parseCharSequence(input);
+    }
+
+    /**
+     * Parses the characters of the input directly, they are not copied. The input must not
+     * change until the next parse, parseEdit keeps reading from it.
+     */
+    public void parseCharSequence(CharSequence input) {
+        parse(input, IntStream.UNKNOWN_SOURCE_NAME);
+    }
+
+    /**
+     * Parses a file through a memory mapping, without first reading it into a String.
+     * ASCII files (all valid ICSS) are read from the mapped bytes, other files are decoded as UTF-8.
+     * The mapping is only used during the parse, so the file can be truncated, replaced or (on Windows)
+     * deleted afterwards. parseEdit works on a String copy of the mapped characters of an ASCII file, and
+     * on the decoded characters of another file, which are on the heap already and are not copied again.
+     */
+    public void parseFile(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (AsciiByteSequence.isAscii(bytes)) {
+                parse(new AsciiByteSequence(bytes), path.toString());
+                //The mapped characters must not outlive the mapping
+                source = source.toString();
+            } else {
+                parse(StandardCharsets.UTF_8.decode(bytes), path.toString());
+            }
+        } catch (InternalError e) {
+            //Reading a page of a mapped file that was truncated meanwhile
+            ast = new AST();
+            source = "";
+            statements = null;
+            parsed = false;
+            throw new IOException(path + " changed while it was parsed", e);
+        } finally {
+            releaseInput();
+        }
+    }
+
+    /*
+     The reused lexer and parser keep the last input and its tokens, which would keep a mapping alive.
+     */
+    private void releaseInput() {
+        if (icssLexer != null) {
+            icssLexer.setInputStream(null);
+        }
+        if (icssParser != null) {
+            icssParser.setTokenStream(null);
+        }
+    }
+
+    private void parse(CharSequence input, String sourceName) {
+        errors.clear();
+        interner = hashConsing ? new NodeInterner() : null;
+        ASTListener listener = parseStylesheet(new CharSequenceCharStream(input, sourceName));
+        if (listener != null) {
+            this.ast = listener.getAST();
+            this.statements = new ArrayList<>(listener.getStatementIntervals());
+        } else {
+            this.ast = new AST();
+            this.statements = null;
+        }
+        this.source = input;
+        if (persistent) {
+            ast.freeze();
+            parsedAST = ast;
+        } else {
+            parsedAST = null;
+        }
+
+        parsed = errors.isEmpty();
+        checked = transformed = modified = false;
+    }
+
+    /**
+     * Applies an edit to the source of the last parse and updates the AST.
+     * Only the top-level statements (stylerules and variable assignments) touched by the edit are
+     * lexed and parsed again, their fresh nodes are spliced into the existing stylesheet body.
+     * Falls back to a full parse when the previous parse failed, when the AST was transformed in place or
+     * when the edited statements do not parse on their own (the full parse reports the errors).
+     * With persistent versions the edit creates a new parsed version that shares the other statements
+     * with the previous one.
+     * @param offset character offset of the edit in the previous source
+     * @param removedLength number of characters removed at offset
+     * @param insertedText text inserted at offset
+     */
+    public void parseEdit(int offset, int removedLength, String insertedText) {
+        String text = new StringBuilder(source.length() - removedLength + insertedText.length())
+                .append(source, 0, offset)
+                .append(insertedText)
+                .append(source, offset + removedLength, source.length())
+                .toString();
+
+        AST previous = persistent ? parsedAST : ast;
+        if (!parsed || (modified && !persistent) || previous == null || statements == null
+                || statements.size() != previous.root.body.size()) {
+            parseCharSequence(text);
+            return;
+        }
+
+        //Statements [first, last] contain the edit. Their bounding characters are untouched,
+        //so the region boundaries are token boundaries in the new text as well.
+        int editEnd = offset + removedLength;
+        int delta = insertedText.length() - removedLength;
+        int first = 0;
+        int regionStart = 0;
+        for (int i = 0; i < statements.size() && statements.get(i).a < offset; i++) {
+            first = i;
+            regionStart = statements.get(i).a;
+        }
+        int last = statements.size() - 1;
+        int regionEnd = text.length();
+        for (int i = first; i < statements.size(); i++) {
+            if (statements.get(i).b >= editEnd) {
+                last = i;
+                regionEnd = statements.get(i).b + delta + 1;
+                break;
+            }
+        }
 
-        //Lex (with Antlr's generated lexer)
-        CharStream inputStream = CharStreams.fromString(input);
-        ICSSLexer lexer = new ICSSLexer(inputStream);
-        lexer.removeErrorListeners();
-        lexer.addErrorListener(this);
         errors.clear();
+        ASTListener listener = parseStylesheet(new CharSequenceCharStream(text.subSequence(regionStart, regionEnd)));
+        if (listener == null || !errors.isEmpty()
+                || listener.getStatementIntervals().size() != listener.getAST().root.body.size()) {
+            parseCharSequence(text);
+            return;
+        }
+
+        //Splice the fresh statements into the body and shift the ranges of the ones behind them
+        if (persistent) {
+            //Only the root is copied, the errors of the shared statements are cleared before the next check
+            previous.clearErrors();
+            ast = previous.version();
+            ast.root = NodeInterner.unshare(ast.root);
+            ast.root.replaceStatements(first, last + 1, new ArrayList<>(listener.getAST().root.body));
+            ast.freeze();
+            parsedAST = ast;
+        } else {
+            ast.root.replaceStatements(first, last + 1, new ArrayList<>(listener.getAST().root.body));
+        }
+
+        statements.subList(first, last + 1).clear();
+        List<Interval> fresh = new ArrayList<>();
+        for (Interval interval : listener.getStatementIntervals()) {
+            fresh.add(Interval.of(interval.a + regionStart, interval.b + regionStart));
+        }
+        statements.addAll(first, fresh);
+        for (int i = first + fresh.size(); i < statements.size(); i++) {
+            Interval interval = statements.get(i);
+            statements.set(i, Interval.of(interval.a + delta, interval.b + delta));
+        }
+        this.source = text;
+
+        parsed = true;
+        checked = transformed = modified = false;
+    }
+
+    /**
+     * The error strategy of the fast SLL pass. It must throw a ParseCancellationException on the first
+     * syntax error, the input is then parsed again with full LL prediction and error recovery.
+     */
+    protected ANTLRErrorStrategy createSllErrorStrategy() {
+        return new BailErrorStrategy();
+    }
+
+    /*
+     Lexes and parses the input and builds the AST, returns null if the parse was aborted.
+     */
+    private ASTListener parseStylesheet(CharStream inputStream) {
+
+        //Lex (with Antlr's generated lexer or the hand-written one)
+        TokenSource tokenSource;
+        if (packedLexer) {
+            PackedLexer lexer = new PackedLexer(inputStream);
+            lexer.addErrorListener(this);
+            tokenSource = lexer;
+        } else {
+            if (icssLexer == null) {
+                icssLexer = new ICSSLexer(inputStream);
+                icssLexer.removeErrorListeners();
+                icssLexer.addErrorListener(this);
+            } else {
+                icssLexer.setInputStream(inputStream);
+            }
+            tokenSource = icssLexer;
+        }
         try {
-            CommonTokenStream tokens = new CommonTokenStream(lexer);
+            CommonTokenStream tokens = new CommonTokenStream(tokenSource);
 
             //Parse (with Antlr's generated parser)
-            ICSSParser parser = new ICSSParser(tokens);
+            if (icssParser == null) {
+                icssParser = new ICSSParser(tokens);
+            } else {
+                icssParser.setTokenStream(tokens);
+            }
+            ICSSParser parser = icssParser;
             parser.removeErrorListeners();
-            parser.addErrorListener(this);
+            parser.removeParseListeners();
+
+            //Without parse tree the AST is built from the parse events, otherwise from the finished tree
+            ASTListener listener = new ASTListener(interner);
+            parser.setBuildParseTree(buildParseTree);
+            if (!buildParseTree) {
+                parser.addParseListener(listener);
+            }
 
-            ParseTree parseTree = parser.stylesheet();
+            //Fast path: SLL prediction, bail out on the first syntax error
+            parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+            parser.setErrorHandler(createSllErrorStrategy());
+            ParseTree parseTree;
+            try {
+                parseTree = parser.stylesheet();
+                sllParses++;
+            } catch (ParseCancellationException e) {
+                //Slow path: full LL prediction with error reporting and recovery
+                llFallbacks++;
+                parser.reset();
+                if (!buildParseTree) {
+                    parser.removeParseListeners();
+                    listener = new ASTListener(interner);
+                    parser.addParseListener(listener);
+                }
+                parser.addErrorListener(this);
+                parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+                parser.setErrorHandler(new DefaultErrorStrategy());
+                parseTree = parser.stylesheet();
+            }
 
             //Extract AST from the Antlr parse tree
-            ASTListener listener = new ASTListener();
-            ParseTreeWalker walker = new ParseTreeWalker();
-            walker.walk(listener, parseTree);
+            if (buildParseTree) {
+                ParseTreeWalker walker = new ParseTreeWalker();
+                walker.walk(listener, parseTree);
+            }
 
-            this.ast = listener.getAST();
+            return listener;
 
         } catch (RecognitionException e) {
-            this.ast = new AST();
             errors.add(e.getMessage());
 
         } catch (ParseCancellationException e) {
-            this.ast = new AST();
             errors.add("Syntax error");
         }
-        parsed = errors.isEmpty();
-        checked = transformed = false;
+        return null;
     }
     public boolean check() {
             if(ast == null)
                 return false;
 
-           (new Checker()).check(this.ast);
+           //The incremental checker clears the errors of what it checks again itself
+           if (checker == null || !incrementalCheck) {
+               this.ast.clearErrors();
+               checker = new Checker();
+               checker.setIncremental(incrementalCheck);
+           }
+           checker.setParallel(parallelCheck);
+           checker.setDiagnosticListener(diagnosticListener);
+           checker.check(this.ast);
 
             ArrayList<SemanticError> errors = this.ast.getErrors();
-            if (!errors.isEmpty()) {
+            if (diagnosticListener == null && !errors.isEmpty()) {
                 for (SemanticError e : errors) {
                     this.errors.add(e.toString());
                 }
@@ -105,11 +441,26 @@ public class Pipeline implements ANTLRErrorListener {
         if(ast == null)
             return;
 
-        (new EvalExpressions()).apply(ast);
-        (new RemoveIf()).apply(ast);
+        Transform[] transforms = {new EvalExpressions(interner), new RemoveIf()};
+        for (Transform transform : transforms) {
+            if (persistent) {
+                //The transformations copy the nodes they change, the previous version stays as it is
+                ast = transform.applyToVersion(ast);
+            } else {
+                transform.apply(ast);
+            }
+        }
+        modified = true;
 
         transformed = errors.isEmpty();
     }
+    //Names of the transformations applied by transform(), in order
+    public List<String> getTransformNames() {
+        List<String> names = new ArrayList<>();
+        names.add(EvalExpressions.class.getSimpleName());
+        names.add(RemoveIf.class.getSimpleName());
+        return names;
+    }
     public String generate() {
         Generator generator = new Generator();
         return generator.generate(ast);
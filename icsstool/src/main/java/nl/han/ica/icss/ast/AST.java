@@ -1,5 +1,6 @@
 package nl.han.ica.icss.ast;
 
+import nl.han.ica.icss.ast.types.TypeTable;
 import nl.han.ica.icss.checker.SemanticError;
 
 import java.util.ArrayList;
@@ -10,6 +11,8 @@ public class AST
 {
     //The root of the tree
     public Stylesheet root;
+    //Types of the expressions, set by the Checker, null before the first check
+    private TypeTable types;
 
     public AST()
     {
@@ -18,31 +21,73 @@ public class AST
 
     public AST(Stylesheet stylesheet)
     {
-        root = stylesheet;
+        setRoot(stylesheet);
     }
 
+    /*
+     Errors set on the nodes before they were part of the stylesheet are added to its ErrorRegistry.
+     */
     public void setRoot(Stylesheet stylesheet)
     {
         root = stylesheet;
+        root.getErrorRegistry().addExisting(root, null);
     }
 
+    /*
+     The errors are taken from the ErrorRegistry of the root, without walking the tree.
+     */
     public ArrayList<SemanticError> getErrors()
     {
-        ArrayList<SemanticError> errors = new ArrayList<>();
-        collectErrors(errors, root);
-        return errors;
+        return root.getErrorRegistry().getErrors();
+    }
+
+    public void clearErrors()
+    {
+        root.getErrorRegistry().clear();
+    }
+
+    public TypeTable getTypes()
+    {
+        return types;
+    }
+
+    public void setTypes(TypeTable types)
+    {
+        this.types = types;
+    }
+
+    /*
+     Makes every node of the tree read-only (shared). Transformations then copy the path to every node
+     they change instead of changing it, see ASTNode.withChild.
+     */
+    public void freeze()
+    {
+        root.freeze();
+    }
+
+    /*
+     A new AST with the same frozen root. Transforming the version leaves this AST as it is, the two
+     share every subtree the transformation did not change. The version starts with the ErrorRegistry
+     of this AST, a copied root has its own. The version shares the TypeTable as well.
+     */
+    public AST version()
+    {
+        return withRoot(root);
     }
 
-    private void collectErrors(ArrayList<SemanticError> errors, ASTNode node)
+    /*
+     The version of this AST with a new root, built by a transformation that copied the path to every
+     node it changed (see Transform.applyToVersion). This AST is frozen and stays as it is, the version is
+     frozen as well and shares the TypeTable.
+     */
+    public AST withRoot(Stylesheet root)
     {
-        if (node.hasError())
-        {
-            errors.add(node.getError());
-        }
-        for (ASTNode child : node.getChildren())
-        {
-            collectErrors(errors, child);
-        }
+        freeze();
+        AST version = new AST();
+        version.root = root;
+        version.types = types;
+        version.freeze();
+        return version;
     }
 
     @Override
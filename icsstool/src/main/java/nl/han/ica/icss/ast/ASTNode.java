@@ -9,6 +9,17 @@ public class ASTNode {
 
     private SemanticError error = null;
 
+    private ASTNode parent = null;
+    //Index of this node in the child list it was last added to, -1 when the parent keeps it in a field.
+    //Only a hint for shared nodes, which can be in many lists.
+    private int slot = -1;
+    //Cached structural hash, 0 when it has to be (re)computed
+    private int hash = 0;
+    //Set by the NodeInterner, a shared node can occur at many places and is read-only
+    private boolean shared = false;
+    //Set while the error of this node is in the ErrorRegistry of its stylesheet
+    private boolean registered = false;
+
     /*
      This method is used in the GUI to create an appropriate label
      in the tree visualisation.
@@ -20,9 +31,24 @@ public class ASTNode {
     /*
      Different AST nodes use different attributes to store their children.
      This method provides a unified interface.
+     It returns a new list, traversals should use getChildCount() and getChild(int) instead.
      */
     public ArrayList<ASTNode> getChildren() {
-        return new ArrayList<>();
+        int count = getChildCount();
+        ArrayList<ASTNode> children = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            children.add(getChild(i));
+        }
+        return children;
+    }
+    /*
+     Indexed access to the children, in the same order as getChildren(), without allocating.
+     */
+    public int getChildCount() {
+        return 0;
+    }
+    public ASTNode getChild(int index) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + getChildCount());
     }
     /*
     By implementing this method in a subclass you can easily create AST nodes
@@ -37,13 +63,187 @@ public class ASTNode {
     public ASTNode removeChild(ASTNode child) {
         return this;
     }
+    /*
+     Puts the replacement at the position of child. Children are found by identity, so
+     structurally equal siblings are never mixed up.
+     */
+    public ASTNode replaceChild(ASTNode child, ASTNode replacement) {
+        return this;
+    }
+    /*
+     Path copying: replaces the child in this node, or in a copy of this node when it is shared.
+     Returns the node that has the replacement, the caller puts it in the place of this node.
+     */
+    public final ASTNode withChild(ASTNode child, ASTNode replacement) {
+        ASTNode node = NodeInterner.unshare(this);
+        node.replaceChild(child, replacement);
+        return node;
+    }
+
+    /*
+     The node this node was last added to, or null.
+     */
+    public ASTNode getParent() {
+        return parent;
+    }
+
+    public boolean isShared() {
+        return shared;
+    }
+    void share() {
+        shared = true;
+    }
+    /*
+     Shares this node and everything below it. A shared node only has shared children,
+     so only the nodes created since the last freeze are visited.
+     */
+    void freeze() {
+        if (shared)
+            return;
+        for (int i = 0; i < getChildCount(); i++) {
+            ASTNode child = getChild(i);
+            if (child != null) {
+                child.freeze();
+            }
+        }
+        shared = true;
+    }
+
+    /*
+     Subclasses call this before adding or removing a child.
+     */
+    protected final void checkNotShared() {
+        if (shared) {
+            throw new IllegalStateException(getNodeLabel() + " is shared, unshare it before changing it");
+        }
+    }
+
+    /*
+     Subclasses call these when a child is added or removed, so the structural hashes
+     of this node and its ancestors are recomputed. Shared children have no single parent.
+     */
+    protected final void adopt(ASTNode child) {
+        adopt(child, -1);
+    }
+    protected final void adopt(ASTNode child, int slot) {
+        if (child != null) {
+            if (!child.shared) {
+                child.parent = this;
+            }
+            child.slot = slot;
+        }
+        invalidateHash();
+    }
+    protected final void orphan(ASTNode child) {
+        if (child != null && child.parent == this) {
+            child.parent = null;
+            child.slot = -1;
+        }
+        invalidateHash();
+    }
+
+    /*
+     Index of the child in one of the child lists of this node, or -1.
+     O(1) through the slot of the child, a child whose slot is out of date is searched by identity.
+     */
+    protected final int indexOf(List<? extends ASTNode> nodes, ASTNode child) {
+        if (child == null)
+            return -1;
+        if (child.slot >= 0 && child.slot < nodes.size() && nodes.get(child.slot) == child)
+            return child.slot;
+        for (int i = nodes.size() - 1; i >= 0; i--) {
+            if (nodes.get(i) == child)
+                return i;
+        }
+        return -1;
+    }
+    /*
+     Updates the slots of the children from index from on, after an insert or removal shifted them.
+     */
+    protected final void renumber(List<? extends ASTNode> nodes, int from) {
+        for (int i = from; i < nodes.size(); i++) {
+            ASTNode child = nodes.get(i);
+            if (child != null) {
+                child.slot = i;
+            }
+        }
+    }
+
+    /*
+     Must be called after changing a field of this node directly instead of through addChild/removeChild.
+     */
+    public void invalidateHash() {
+        //A cached hash implies cached hashes below it, so the ancestors can stop at the first invalid one
+        for (ASTNode node = this; node != null && node.hash != 0; node = node.parent) {
+            node.hash = 0;
+        }
+    }
+
+    /*
+     Hash over the class, the attributes compared by equals and the hashes of the children.
+     Computed once and cached until the subtree changes, so equal subtrees can be found in O(1).
+     */
+    public final int structuralHash() {
+        int result = hash;
+        if (result == 0) {
+            result = getClass().getName().hashCode();
+            result = 31 * result + attributeHash();
+            for (int i = 0; i < getChildCount(); i++) {
+                ASTNode child = getChild(i);
+                result = 31 * result + (child == null ? 0 : child.structuralHash());
+            }
+            if (result == 0) {
+                result = 1;
+            }
+            hash = result;
+        }
+        return result;
+    }
+
+    /*
+     Hash of the attributes, other than the children, that equals compares.
+     */
+    protected int attributeHash() {
+        return 0;
+    }
+
+    /*
+     Calls the visit method of the visitor for the class of this node.
+     */
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visitNode(this);
+    }
 
     public SemanticError getError() {
         return this.error;
     }
 
+    /*
+     Also adds the node to the ErrorRegistry of the stylesheet it is part of.
+     */
     public void setError(String description) {
         this.error = new SemanticError(description);
+        if (!registered && !shared) {
+            ASTNode top = this;
+            while (top.parent != null) {
+                top = top.parent;
+            }
+            if (top instanceof Stylesheet) {
+                ((Stylesheet) top).getErrorRegistry().add(this);
+                registered = true;
+            }
+        }
+    }
+
+    public void clearError() {
+        this.error = null;
+    }
+
+    boolean isRegistered() {
+        return registered;
+    }
+    void setRegistered(boolean registered) {
+        this.registered = registered;
     }
 
     public boolean hasError() {
@@ -60,26 +260,36 @@ public class ASTNode {
 		builder.append("[");
 		builder.append(getNodeLabel());	
 		builder.append("|");
-		for(ASTNode child : getChildren()) {
-			child.toString(builder);
-		}	
+		for(int i = 0; i < getChildCount(); i++) {
+			getChild(i).toString(builder);
+		}
 		builder.append("]");
 	}
 
 	@Override
     public boolean equals(Object o) {
-        if(! (o instanceof ASTNode))
+        if(this == o)
+            return true;
+        if(o == null || o.getClass() != getClass())
+            return false;
+        //Different hashes mean different subtrees
+        ASTNode other = (ASTNode) o;
+        if(structuralHash() != other.structuralHash())
             return false;
         //Compare all children
-        List<ASTNode> thisChildren = this.getChildren();
-        List<ASTNode> otherChildren = ((ASTNode) o).getChildren();
-        if(otherChildren.size() != thisChildren.size())
+        int count = this.getChildCount();
+        if(other.getChildCount() != count)
             return false;
-        for(int i = 0; i < thisChildren.size(); i++ ) {
-            if(!thisChildren.get(i).equals(otherChildren.get(i))) {
+        for(int i = 0; i < count; i++ ) {
+            if(!this.getChild(i).equals(other.getChild(i))) {
                 return false;
             }
         }
         return true;
     }
+
+    @Override
+    public int hashCode() {
+        return structuralHash();
+    }
 }
@@ -0,0 +1,94 @@
+package nl.han.ica.icss.ast;
+
+import nl.han.ica.icss.ast.literals.*;
+import nl.han.ica.icss.ast.operations.AddOperation;
+import nl.han.ica.icss.ast.operations.MultiplyOperation;
+import nl.han.ica.icss.ast.operations.SubtractOperation;
+import nl.han.ica.icss.ast.selectors.ClassSelector;
+import nl.han.ica.icss.ast.selectors.IdSelector;
+import nl.han.ica.icss.ast.selectors.TagSelector;
+
+/**
+ * Typed visitor over the AST, call node.accept(visitor) to dispatch on the node class.
+ *
+ * Every method has a default: operations, literals and selectors fall back to visitOperation,
+ * visitLiteral and visitSelector, and those (like all other nodes) to visitNode, which returns null.
+ * A visitor only overrides the methods for the nodes it is interested in.
+ *
+ * Visitors do not descend into children by themselves, use an ASTWalker for that.
+ *
+ * @param <R> result of a visit
+ */
+public interface ASTVisitor<R> {
+
+    default R visitNode(ASTNode node) {
+        return null;
+    }
+
+    default R visitStylesheet(Stylesheet node) {
+        return visitNode(node);
+    }
+    default R visitStylerule(Stylerule node) {
+        return visitNode(node);
+    }
+    default R visitDeclaration(Declaration node) {
+        return visitNode(node);
+    }
+    default R visitPropertyName(PropertyName node) {
+        return visitNode(node);
+    }
+    default R visitIfClause(IfClause node) {
+        return visitNode(node);
+    }
+    default R visitVariableAssignment(VariableAssignment node) {
+        return visitNode(node);
+    }
+    default R visitVariableReference(VariableReference node) {
+        return visitNode(node);
+    }
+
+    default R visitOperation(Operation node) {
+        return visitNode(node);
+    }
+    default R visitAddOperation(AddOperation node) {
+        return visitOperation(node);
+    }
+    default R visitSubtractOperation(SubtractOperation node) {
+        return visitOperation(node);
+    }
+    default R visitMultiplyOperation(MultiplyOperation node) {
+        return visitOperation(node);
+    }
+
+    default R visitLiteral(Literal node) {
+        return visitNode(node);
+    }
+    default R visitBoolLiteral(BoolLiteral node) {
+        return visitLiteral(node);
+    }
+    default R visitColorLiteral(ColorLiteral node) {
+        return visitLiteral(node);
+    }
+    default R visitPercentageLiteral(PercentageLiteral node) {
+        return visitLiteral(node);
+    }
+    default R visitPixelLiteral(PixelLiteral node) {
+        return visitLiteral(node);
+    }
+    default R visitScalarLiteral(ScalarLiteral node) {
+        return visitLiteral(node);
+    }
+
+    default R visitSelector(Selector node) {
+        return visitNode(node);
+    }
+    default R visitTagSelector(TagSelector node) {
+        return visitSelector(node);
+    }
+    default R visitClassSelector(ClassSelector node) {
+        return visitSelector(node);
+    }
+    default R visitIdSelector(IdSelector node) {
+        return visitSelector(node);
+    }
+}
@@ -0,0 +1,68 @@
+package nl.han.ica.icss.ast;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs several visitors in a single depth-first walk over the AST.
+ *
+ * Each pass is a pair of visitors: the enter visitor sees a node before its children, the exit
+ * visitor after them. On every node the enter visitors run in the order the passes were added,
+ * the exit visitors in reverse order, so a pass added later is nested inside the earlier ones.
+ * Independent analyses can share one walk this way instead of traversing the tree once each.
+ */
+public class ASTWalker {
+
+    private final List<ASTVisitor<?>> enterVisitors = new ArrayList<>();
+    private final List<ASTVisitor<?>> exitVisitors = new ArrayList<>();
+    //Array copies for the walk, rebuilt after a pass was added
+    private ASTVisitor<?>[] enter;
+    private ASTVisitor<?>[] exit;
+
+    public ASTWalker add(ASTVisitor<?> enter) {
+        return add(enter, null);
+    }
+
+    /**
+     * @param enter visitor called before the children of a node, or null
+     * @param exit visitor called after the children of a node, or null
+     */
+    public ASTWalker add(ASTVisitor<?> enter, ASTVisitor<?> exit) {
+        if (enter != null) {
+            enterVisitors.add(enter);
+        }
+        if (exit != null) {
+            exitVisitors.add(0, exit);
+        }
+        this.enter = null;
+        this.exit = null;
+        return this;
+    }
+
+    public void walk(AST ast) {
+        walk(ast.root);
+    }
+
+    public void walk(ASTNode root) {
+        if (enter == null) {
+            enter = enterVisitors.toArray(new ASTVisitor<?>[0]);
+            exit = exitVisitors.toArray(new ASTVisitor<?>[0]);
+        }
+        walk(root, enter, exit);
+    }
+
+    private static void walk(ASTNode node, ASTVisitor<?>[] enter, ASTVisitor<?>[] exit) {
+        for (ASTVisitor<?> visitor : enter) {
+            node.accept(visitor);
+        }
+        for (int i = 0; i < node.getChildCount(); i++) {
+            ASTNode child = node.getChild(i);
+            if (child != null) {
+                walk(child, enter, exit);
+            }
+        }
+        for (ASTVisitor<?> visitor : exit) {
+            node.accept(visitor);
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package nl.han.ica.icss.ast;
 
-import java.util.ArrayList;
 import java.util.Objects;
 
 /*
@@ -16,6 +15,7 @@ public class Declaration extends ASTNode {
 	public Declaration(String property) {
 		super();
 		this.property = new PropertyName(property);
+		adopt(this.property);
 	}
 	@Override
 	public String getNodeLabel() {
@@ -23,22 +23,57 @@ public class Declaration extends ASTNode {
 	}
 
 	@Override
-	public ArrayList<ASTNode> getChildren() {
-
-		ArrayList<ASTNode> children = new ArrayList<>();
-		if(property != null)
-		    children.add(property);
-		if(expression != null)
-		    children.add(expression);
-		return children;
+	public int getChildCount() {
+		return (property != null ? 1 : 0) + (expression != null ? 1 : 0);
+	}
+	@Override
+	public ASTNode getChild(int index) {
+		if(index == 0 && property != null)
+			return property;
+		if(index == (property != null ? 1 : 0) && expression != null)
+			return expression;
+		return super.getChild(index);
 	}
 	@Override
 	public ASTNode addChild(ASTNode child) {
+		checkNotShared();
 		if(child instanceof PropertyName) {
+			orphan(property);
 			property = (PropertyName) child;
 		} else if(child instanceof Expression) {
+			orphan(expression);
 			expression = (Expression) child;
+		} else {
+			return this;
+		}
+		adopt(child);
+		return this;
+	}
+	@Override
+	public ASTNode removeChild(ASTNode child) {
+		checkNotShared();
+		if(child == property) {
+			property = null;
+		} else if(child == expression) {
+			expression = null;
+		} else {
+			return this;
+		}
+		orphan(child);
+		return this;
+	}
+	@Override
+	public ASTNode replaceChild(ASTNode child, ASTNode replacement) {
+		checkNotShared();
+		if(child == property) {
+			property = (PropertyName) replacement;
+		} else if(child == expression) {
+			expression = (Expression) replacement;
+		} else {
+			return this;
 		}
+		orphan(child);
+		adopt(replacement);
 		return this;
 	}
 
@@ -51,10 +86,6 @@ public class Declaration extends ASTNode {
 		return Objects.equals(property, that.property) &&
 				Objects.equals(expression, that.expression);
 	}
-	@Override
-	public int hashCode() {
-		return Objects.hash(property, expression);
-	}
 
 	@Override
 	public String toString()
@@ -63,4 +94,9 @@ public class Declaration extends ASTNode {
 		result.append(property.toString()).append(": ").append(expression.toString());
 		return result.toString();
 	}
+
+	@Override
+	public <R> R accept(ASTVisitor<R> visitor) {
+		return visitor.visitDeclaration(this);
+	}
 }
@@ -0,0 +1,180 @@
+package nl.han.ica.icss.ast;
+
+import nl.han.ica.icss.checker.SemanticError;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Index of the nodes with an error in one stylesheet, kept by its root.
+ *
+ * ASTNode.setError adds the node when it is part of the stylesheet, so collecting and clearing
+ * the errors costs time in the number of errors instead of the number of nodes. Errors are
+ * returned in source order: statements by their position in the stylesheet, the errors within
+ * a statement in the order of the tree.
+ *
+ * A shared node (see NodeInterner) has no single parent, its occurrences are added with
+ * add(node, statement) by whoever knows where the node was found.
+ */
+public class ErrorRegistry {
+
+    private final Stylesheet root;
+    private final List<ASTNode> nodes = new ArrayList<>();
+    //Top-level statement of each node, null when it is looked up through the parents
+    private final List<ASTNode> statements = new ArrayList<>();
+
+    ErrorRegistry(Stylesheet root) {
+        this.root = root;
+    }
+
+    void add(ASTNode node) {
+        add(node, null);
+    }
+
+    public void add(ASTNode node, ASTNode statement) {
+        nodes.add(node);
+        statements.add(statement);
+    }
+
+    /*
+     Adds the errors that were set on nodes of the subtree before it was part of the stylesheet.
+     */
+    void addExisting(ASTNode node, ASTNode statement) {
+        if (node.hasError() && !node.isRegistered()) {
+            if (node.isShared()) {
+                add(node, statement);
+            } else {
+                node.setRegistered(true);
+                add(node);
+            }
+        }
+        for (int i = 0; i < node.getChildCount(); i++) {
+            ASTNode child = node.getChild(i);
+            if (child != null) {
+                addExisting(child, statement == null ? child : statement);
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return getErrors().isEmpty();
+    }
+
+    public ArrayList<SemanticError> getErrors() {
+        //Group the nodes that still have an error and are still in the stylesheet by statement
+        List<ASTNode> order = new ArrayList<>();
+        IdentityHashMap<ASTNode, List<ASTNode>> groups = new IdentityHashMap<>();
+        for (int i = 0; i < nodes.size(); i++) {
+            ASTNode node = nodes.get(i);
+            if (!node.hasError())
+                continue;
+            ASTNode statement = statements.get(i) != null ? statements.get(i) : statementOf(node);
+            if (statement == null)
+                continue;
+            List<ASTNode> group = groups.get(statement);
+            if (group == null) {
+                group = new ArrayList<>();
+                groups.put(statement, group);
+                order.add(statement);
+            }
+            group.add(node);
+        }
+        if (order.size() > 1) {
+            //O(1) per statement through the child slots, statements that were removed are dropped
+            IdentityHashMap<ASTNode, Integer> positions = new IdentityHashMap<>();
+            for (ASTNode statement : order) {
+                positions.put(statement, statement == root ? -1 : root.indexOf(root.body, statement));
+            }
+            order.removeIf(statement -> statement != root && positions.get(statement) < 0);
+            order.sort(Comparator.comparingInt(positions::get));
+        }
+
+        ArrayList<SemanticError> errors = new ArrayList<>();
+        for (ASTNode statement : order) {
+            List<ASTNode> group = groups.get(statement);
+            if (group.size() == 1) {
+                errors.add(group.get(0).getError());
+            } else {
+                //Only the statements with several errors are walked, to restore the source order
+                IdentityHashMap<ASTNode, Integer> remaining = new IdentityHashMap<>();
+                for (ASTNode node : group) {
+                    remaining.merge(node, 1, Integer::sum);
+                }
+                collectInOrder(statement, remaining, errors);
+            }
+        }
+        return errors;
+    }
+
+    private static void collectInOrder(ASTNode node, IdentityHashMap<ASTNode, Integer> remaining, List<SemanticError> errors) {
+        Integer count = remaining.get(node);
+        if (count != null) {
+            errors.add(node.getError());
+            if (count == 1) {
+                remaining.remove(node);
+            } else {
+                remaining.put(node, count - 1);
+            }
+        }
+        for (int i = 0; i < node.getChildCount() && !remaining.isEmpty(); i++) {
+            ASTNode child = node.getChild(i);
+            if (child != null) {
+                collectInOrder(child, remaining, errors);
+            }
+        }
+    }
+
+    //The child of the root that contains the node, null when the node was removed from the stylesheet
+    private ASTNode statementOf(ASTNode node) {
+        if (node == root)
+            return root;
+        ASTNode statement = node;
+        while (statement.getParent() != null && statement.getParent() != root) {
+            statement = statement.getParent();
+        }
+        return statement.getParent() == root ? statement : null;
+    }
+
+    /**
+     * Clears the errors in the given top-level statements, for checking them again, and forgets the
+     * nodes that are no longer part of the stylesheet. The errors in other statements are kept.
+     * Nodes of removed statements keep their error, a shared node can still occur elsewhere.
+     */
+    public void clear(Set<ASTNode> cleared) {
+        int kept = 0;
+        for (int i = 0; i < nodes.size(); i++) {
+            ASTNode node = nodes.get(i);
+            ASTNode statement = statements.get(i) != null ? statements.get(i) : statementOf(node);
+            boolean removed = statement == null || (statement != root && root.indexOf(root.body, statement) < 0);
+            if (removed || cleared.contains(statement)) {
+                if (!removed) {
+                    node.clearError();
+                }
+                if (!node.isShared()) {
+                    node.setRegistered(false);
+                }
+                continue;
+            }
+            nodes.set(kept, node);
+            statements.set(kept, statements.get(i));
+            kept++;
+        }
+        nodes.subList(kept, nodes.size()).clear();
+        statements.subList(kept, statements.size()).clear();
+    }
+
+    /**
+     * Clears the errors of all registered nodes.
+     */
+    public void clear() {
+        for (ASTNode node : nodes) {
+            node.clearError();
+            node.setRegistered(false);
+        }
+        nodes.clear();
+        statements.clear();
+    }
+}
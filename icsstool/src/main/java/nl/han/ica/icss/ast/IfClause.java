@@ -5,7 +5,6 @@ import java.util.Objects;
 
 public class IfClause extends ASTNode {
 
-
     public Expression conditionalExpression;
     public ArrayList<ASTNode> body = new ArrayList<>();
 
@@ -15,6 +14,9 @@ public class IfClause extends ASTNode {
 
         this.conditionalExpression = conditionalExpression;
         this.body = body;
+        adopt(conditionalExpression);
+        for (int i = 0; i < body.size(); i++)
+            adopt(body.get(i), i);
     }
 
     @Override
@@ -22,24 +24,66 @@ public class IfClause extends ASTNode {
         return "If_Clause";
     }
     @Override
-    public ArrayList<ASTNode> getChildren() {
-        ArrayList<ASTNode> children = new ArrayList<>();
-        children.add(conditionalExpression);
-        children.addAll(body);
-
-        return children;
+    public int getChildCount() {
+        return 1 + body.size();
+    }
+    @Override
+    public ASTNode getChild(int index) {
+        if(index == 0)
+            return conditionalExpression;
+        return body.get(index - 1);
     }
 
     @Override
     public ASTNode addChild(ASTNode child) {
-        if(child instanceof Expression)
+        checkNotShared();
+        if(child instanceof Expression) {
+            orphan(conditionalExpression);
             conditionalExpression  = (Expression) child;
-        else
+            adopt(child);
+        } else {
             body.add(child);
+            adopt(child, body.size() - 1);
+        }
 
         return this;
     }
     @Override
+    public ASTNode removeChild(ASTNode child) {
+        checkNotShared();
+        if(child == conditionalExpression) {
+            conditionalExpression = null;
+        } else {
+            //By identity, equal declarations can occur more than once
+            int index = indexOf(body, child);
+            if(index < 0)
+                return this;
+            body.remove(index);
+            orphan(child);
+            renumber(body, index);
+            return this;
+        }
+        orphan(child);
+        return this;
+    }
+    @Override
+    public ASTNode replaceChild(ASTNode child, ASTNode replacement) {
+        checkNotShared();
+        if(child == conditionalExpression) {
+            conditionalExpression = (Expression) replacement;
+            orphan(child);
+            adopt(replacement);
+            return this;
+        }
+        int index = indexOf(body, child);
+        if(index < 0)
+            return this;
+        orphan(child);
+        body.set(index, replacement);
+        adopt(replacement, index);
+        return this;
+    }
+    @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
@@ -49,12 +93,12 @@ public class IfClause extends ASTNode {
                 Objects.equals(body, ifClause.body);
     }
 
-    @Override
-    public int hashCode() {
-        return Objects.hash(conditionalExpression, body);
-    }
-
     public Expression getConditionalExpression() {
         return conditionalExpression;
     }
+
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visitIfClause(this);
+    }
 }
@@ -1,4 +1,14 @@
 package nl.han.ica.icss.ast;
 
+import nl.han.ica.icss.ast.types.ExpressionType;
+
 public abstract class Literal extends Expression {
+
+    //The type of a literal does not depend on where it occurs
+    public abstract ExpressionType getType();
+
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visitLiteral(this);
+    }
 }
@@ -0,0 +1,257 @@
+package nl.han.ica.icss.ast;
+
+import nl.han.ica.icss.ast.literals.*;
+import nl.han.ica.icss.ast.operations.AddOperation;
+import nl.han.ica.icss.ast.operations.MultiplyOperation;
+import nl.han.ica.icss.ast.operations.SubtractOperation;
+import nl.han.ica.icss.ast.selectors.ClassSelector;
+import nl.han.ica.icss.ast.selectors.IdSelector;
+import nl.han.ica.icss.ast.selectors.TagSelector;
+
+import java.util.HashMap;
+import java.util.Objects;
+
+/**
+ * Hash-consing factory: structurally identical subtrees are replaced by one shared instance.
+ *
+ * Only subtrees whose meaning does not depend on where they occur are shared: literals, selectors,
+ * property names and declarations of a literal value. Variable references (checked against their
+ * scope), operations (folded by EvalExpressions) and nodes with a body stay unique.
+ *
+ * Shared nodes are read-only, addChild and removeChild throw an IllegalStateException on them.
+ * A transformation that has to change one calls unshare() first and puts the copy in its place.
+ * AST.freeze() shares a whole tree the same way, to keep it as a persistent version.
+ * An error set on a shared node by the Checker is reported for every occurrence, which is the same
+ * result a separate copy per occurrence would give.
+ */
+public class NodeInterner {
+
+    private final HashMap<Key, ASTNode> nodes = new HashMap<>();
+    private long requests = 0;
+    private long deduplicated = 0;
+
+    /**
+     * @return the shared instance that is structurally identical to the node, or the node itself
+     * when it cannot be shared
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends ASTNode> T intern(T node) {
+        if (node == null || node.isShared())
+            return node;
+        Key key = keyOf(node);
+        if (key == null)
+            return node;
+
+        requests++;
+        ASTNode shared = nodes.get(key);
+        if (shared != null) {
+            deduplicated++;
+            return (T) shared;
+        }
+        node.share();
+        nodes.put(key, node);
+        return node;
+    }
+
+    /**
+     * @return a private copy of a shared node that may be changed, the node itself when it is not shared.
+     * The children of the copy are still shared.
+     */
+    public static <T extends ASTNode> T unshare(T node) {
+        if (node == null || !node.isShared())
+            return node;
+        return copy(node);
+    }
+
+    /**
+     * @return a new node, not shared, with the attributes and the children of the node.
+     * The children are not copied.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends ASTNode> T copy(T node) {
+        ASTNode copy = node.accept(COPIER);
+        for (int i = 0; i < node.getChildCount(); i++) {
+            copy.addChild(node.getChild(i));
+        }
+        return (T) copy;
+    }
+
+    //Number of nodes offered for sharing, and how many of them were replaced by an existing instance
+    public long getRequestCount() {
+        return requests;
+    }
+    public long getDeduplicatedCount() {
+        return deduplicated;
+    }
+    public int getSharedCount() {
+        return nodes.size();
+    }
+
+    @Override
+    public String toString() {
+        return requests + " shareable node(s), " + deduplicated + " deduplicated, " + nodes.size() + " shared instance(s)";
+    }
+
+    private static Key keyOf(ASTNode node) {
+        if (node.hasError())
+            return null;
+        if (node instanceof Declaration) {
+            Declaration declaration = (Declaration) node;
+            //Only declarations built from shared parts, compared by identity
+            if (declaration.property == null || !declaration.property.isShared()
+                    || !(declaration.expression instanceof Literal) || !declaration.expression.isShared())
+                return null;
+            return new Key(Declaration.class, null, declaration.property, declaration.expression);
+        }
+        Object value = node.accept(VALUE);
+        return value == null ? null : new Key(node.getClass(), value, null, null);
+    }
+
+    //The attribute of a shareable leaf, null for all other nodes
+    private static final ASTVisitor<Object> VALUE = new ASTVisitor<Object>() {
+        @Override
+        public Object visitPropertyName(PropertyName node) {
+            return node.name;
+        }
+        @Override
+        public Object visitBoolLiteral(BoolLiteral node) {
+            return node.value;
+        }
+        @Override
+        public Object visitColorLiteral(ColorLiteral node) {
+            return node.value;
+        }
+        @Override
+        public Object visitPercentageLiteral(PercentageLiteral node) {
+            return node.value;
+        }
+        @Override
+        public Object visitPixelLiteral(PixelLiteral node) {
+            return node.value;
+        }
+        @Override
+        public Object visitScalarLiteral(ScalarLiteral node) {
+            return node.value;
+        }
+        @Override
+        public Object visitTagSelector(TagSelector node) {
+            return node.tag;
+        }
+        @Override
+        public Object visitClassSelector(ClassSelector node) {
+            return node.cls;
+        }
+        @Override
+        public Object visitIdSelector(IdSelector node) {
+            return node.id;
+        }
+    };
+
+    //A new node of the same class with the same attributes, without children
+    private static final ASTVisitor<ASTNode> COPIER = new ASTVisitor<ASTNode>() {
+        @Override
+        public ASTNode visitNode(ASTNode node) {
+            throw new IllegalArgumentException("Cannot copy " + node.getNodeLabel());
+        }
+        @Override
+        public ASTNode visitStylesheet(Stylesheet node) {
+            return new Stylesheet();
+        }
+        @Override
+        public ASTNode visitStylerule(Stylerule node) {
+            return new Stylerule();
+        }
+        @Override
+        public ASTNode visitDeclaration(Declaration node) {
+            return new Declaration();
+        }
+        @Override
+        public ASTNode visitIfClause(IfClause node) {
+            return new IfClause();
+        }
+        @Override
+        public ASTNode visitVariableAssignment(VariableAssignment node) {
+            return new VariableAssignment();
+        }
+        @Override
+        public ASTNode visitVariableReference(VariableReference node) {
+            return new VariableReference(node.name);
+        }
+        @Override
+        public ASTNode visitAddOperation(AddOperation node) {
+            return new AddOperation();
+        }
+        @Override
+        public ASTNode visitSubtractOperation(SubtractOperation node) {
+            return new SubtractOperation();
+        }
+        @Override
+        public ASTNode visitMultiplyOperation(MultiplyOperation node) {
+            return new MultiplyOperation();
+        }
+        @Override
+        public ASTNode visitPropertyName(PropertyName node) {
+            return new PropertyName(node.name);
+        }
+        @Override
+        public ASTNode visitBoolLiteral(BoolLiteral node) {
+            return new BoolLiteral(node.value);
+        }
+        @Override
+        public ASTNode visitColorLiteral(ColorLiteral node) {
+            return new ColorLiteral(node.value);
+        }
+        @Override
+        public ASTNode visitPercentageLiteral(PercentageLiteral node) {
+            return new PercentageLiteral(node.value);
+        }
+        @Override
+        public ASTNode visitPixelLiteral(PixelLiteral node) {
+            return new PixelLiteral(node.value);
+        }
+        @Override
+        public ASTNode visitScalarLiteral(ScalarLiteral node) {
+            return new ScalarLiteral(node.value);
+        }
+        @Override
+        public ASTNode visitTagSelector(TagSelector node) {
+            return new TagSelector(node.tag);
+        }
+        @Override
+        public ASTNode visitClassSelector(ClassSelector node) {
+            return new ClassSelector(node.cls);
+        }
+        @Override
+        public ASTNode visitIdSelector(IdSelector node) {
+            return new IdSelector(node.id);
+        }
+    };
+
+    private static class Key {
+        final Class<?> type;
+        final Object value;
+        final ASTNode first;
+        final ASTNode second;
+
+        Key(Class<?> type, Object value, ASTNode first, ASTNode second) {
+            this.type = type;
+            this.value = value;
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key))
+                return false;
+            Key other = (Key) o;
+            //Children are shared instances, so identity is structural equality here
+            return type == other.type && Objects.equals(value, other.value) && first == other.first && second == other.second;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, value, System.identityHashCode(first), System.identityHashCode(second));
+        }
+    }
+}
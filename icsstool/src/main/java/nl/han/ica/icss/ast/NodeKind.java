@@ -0,0 +1,83 @@
+package nl.han.ica.icss.ast;
+
+import nl.han.ica.icss.ast.literals.*;
+import nl.han.ica.icss.ast.operations.AddOperation;
+import nl.han.ica.icss.ast.operations.MultiplyOperation;
+import nl.han.ica.icss.ast.operations.SubtractOperation;
+import nl.han.ica.icss.ast.selectors.ClassSelector;
+import nl.han.ica.icss.ast.selectors.IdSelector;
+import nl.han.ica.icss.ast.selectors.TagSelector;
+
+/**
+ * Numbers of the node classes, for the forms of an AST that are stored without objects:
+ * the FlatAST arrays and the ASTSnapshot format. The numbers are part of the snapshot format,
+ * existing kinds must keep their number.
+ */
+public final class NodeKind {
+
+    //An absent child, such as the missing else of an if clause
+    public static final byte NULL = 0;
+    public static final byte STYLESHEET = 1;
+    public static final byte STYLERULE = 2;
+    public static final byte DECLARATION = 3;
+    public static final byte PROPERTY_NAME = 4;
+    public static final byte IF_CLAUSE = 5;
+    public static final byte VARIABLE_ASSIGNMENT = 6;
+    public static final byte VARIABLE_REFERENCE = 7;
+    public static final byte BOOL_LITERAL = 8;
+    public static final byte COLOR_LITERAL = 9;
+    public static final byte PERCENTAGE_LITERAL = 10;
+    public static final byte PIXEL_LITERAL = 11;
+    public static final byte SCALAR_LITERAL = 12;
+    public static final byte ADD_OPERATION = 13;
+    public static final byte MULTIPLY_OPERATION = 14;
+    public static final byte SUBTRACT_OPERATION = 15;
+    public static final byte TAG_SELECTOR = 16;
+    public static final byte CLASS_SELECTOR = 17;
+    public static final byte ID_SELECTOR = 18;
+
+    private NodeKind() {
+    }
+
+    public static byte of(ASTNode node) {
+        if (node == null) return NULL;
+        if (node instanceof Stylesheet) return STYLESHEET;
+        if (node instanceof Stylerule) return STYLERULE;
+        if (node instanceof Declaration) return DECLARATION;
+        if (node instanceof PropertyName) return PROPERTY_NAME;
+        if (node instanceof IfClause) return IF_CLAUSE;
+        if (node instanceof VariableAssignment) return VARIABLE_ASSIGNMENT;
+        if (node instanceof VariableReference) return VARIABLE_REFERENCE;
+        if (node instanceof BoolLiteral) return BOOL_LITERAL;
+        if (node instanceof ColorLiteral) return COLOR_LITERAL;
+        if (node instanceof PercentageLiteral) return PERCENTAGE_LITERAL;
+        if (node instanceof PixelLiteral) return PIXEL_LITERAL;
+        if (node instanceof ScalarLiteral) return SCALAR_LITERAL;
+        if (node instanceof AddOperation) return ADD_OPERATION;
+        if (node instanceof MultiplyOperation) return MULTIPLY_OPERATION;
+        if (node instanceof SubtractOperation) return SUBTRACT_OPERATION;
+        if (node instanceof TagSelector) return TAG_SELECTOR;
+        if (node instanceof ClassSelector) return CLASS_SELECTOR;
+        if (node instanceof IdSelector) return ID_SELECTOR;
+        throw new IllegalArgumentException("No node kind for " + node.getNodeLabel());
+    }
+
+    /**
+     * @return true for the kinds that have children, the other kinds have a value instead
+     */
+    public static boolean isContainer(int kind) {
+        switch (kind) {
+            case STYLESHEET:
+            case STYLERULE:
+            case DECLARATION:
+            case IF_CLAUSE:
+            case VARIABLE_ASSIGNMENT:
+            case ADD_OPERATION:
+            case MULTIPLY_OPERATION:
+            case SUBTRACT_OPERATION:
+                return true;
+            default:
+                return false;
+        }
+    }
+}
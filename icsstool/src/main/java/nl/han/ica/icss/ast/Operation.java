@@ -1,29 +1,74 @@
 package nl.han.ica.icss.ast;
 
-import java.util.ArrayList;
+import nl.han.ica.icss.ast.types.Operator;
 
 public abstract class Operation extends Expression {
 
     public Expression lhs;
     public Expression rhs;
 
+    //Index into the OperatorTable
+    public abstract Operator getOperator();
+
     @Override
-    public ArrayList<ASTNode> getChildren() {
-        ArrayList<ASTNode> children = new ArrayList<>();
-        if(lhs != null)
-            children.add(lhs);
-        if(rhs != null)
-            children.add(rhs);
-        return children;
+    public int getChildCount() {
+        return (lhs != null ? 1 : 0) + (rhs != null ? 1 : 0);
+    }
+
+    @Override
+    public ASTNode getChild(int index) {
+        if(index == 0 && lhs != null)
+            return lhs;
+        if(index == (lhs != null ? 1 : 0) && rhs != null)
+            return rhs;
+        return super.getChild(index);
     }
 
     @Override
     public ASTNode addChild(ASTNode child) {
+        checkNotShared();
         if(lhs == null) {
             lhs = (Expression) child;
         } else if(rhs == null) {
             rhs = (Expression) child;
+        } else {
+            return this;
+        }
+        adopt(child);
+        return this;
+    }
+
+    @Override
+    public ASTNode removeChild(ASTNode child) {
+        checkNotShared();
+        if(rhs == child) {
+            rhs = null;
+        } else if(lhs == child) {
+            lhs = null;
+        } else {
+            return this;
         }
+        orphan(child);
         return this;
     }
+
+    @Override
+    public ASTNode replaceChild(ASTNode child, ASTNode replacement) {
+        checkNotShared();
+        if(lhs == child) {
+            lhs = (Expression) replacement;
+        } else if(rhs == child) {
+            rhs = (Expression) replacement;
+        } else {
+            return this;
+        }
+        orphan(child);
+        adopt(replacement);
+        return this;
+    }
+
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visitOperation(this);
+    }
 }
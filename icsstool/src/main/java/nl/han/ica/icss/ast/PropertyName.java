@@ -1,5 +1,7 @@
 package nl.han.ica.icss.ast;
 
+import java.util.Objects;
+
 public class PropertyName extends ASTNode {
 
     public String name;
@@ -18,9 +20,28 @@ public class PropertyName extends ASTNode {
         return "Property: (" + name + ")";
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        if (!super.equals(o)) return false;
+        PropertyName that = (PropertyName) o;
+        return Objects.equals(name, that.name);
+    }
+
+    @Override
+    protected int attributeHash() {
+        return Objects.hash(name);
+    }
+
     @Override
     public String toString()
     {
         return name;
     }
+
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visitPropertyName(this);
+    }
 }
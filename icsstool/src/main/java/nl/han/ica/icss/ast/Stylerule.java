@@ -19,6 +19,9 @@ public class Stylerule extends ASTNode
         this.selectors = new ArrayList<>();
         this.selectors.add(selector);
         this.body = body;
+        adopt(selector, 0);
+        for (int i = 0; i < body.size(); i++)
+            adopt(body.get(i), i);
     }
 
     @Override
@@ -28,22 +31,75 @@ public class Stylerule extends ASTNode
     }
 
     @Override
-    public ArrayList<ASTNode> getChildren()
+    public int getChildCount()
     {
-        ArrayList<ASTNode> children = new ArrayList<>();
-        children.addAll(selectors);
-        children.addAll(body);
+        return selectors.size() + body.size();
+    }
 
-        return children;
+    @Override
+    public ASTNode getChild(int index)
+    {
+        if (index < selectors.size())
+            return selectors.get(index);
+        return body.get(index - selectors.size());
     }
 
     @Override
     public ASTNode addChild(ASTNode child)
     {
+        checkNotShared();
         if (child instanceof Selector)
+        {
             selectors.add((Selector) child);
+            adopt(child, selectors.size() - 1);
+        }
         else
+        {
             body.add(child);
+            adopt(child, body.size() - 1);
+        }
+
+        return this;
+    }
+
+    @Override
+    public ASTNode removeChild(ASTNode child)
+    {
+        checkNotShared();
+        //By identity, equal declarations can occur more than once
+        ArrayList<? extends ASTNode> nodes = child instanceof Selector ? selectors : body;
+        int index = indexOf(nodes, child);
+        if (index < 0)
+            return this;
+        nodes.remove(index);
+        orphan(child);
+        renumber(nodes, index);
+
+        return this;
+    }
+
+    @Override
+    public ASTNode replaceChild(ASTNode child, ASTNode replacement)
+    {
+        checkNotShared();
+        if (child instanceof Selector)
+        {
+            int index = indexOf(selectors, child);
+            if (index < 0)
+                return this;
+            orphan(child);
+            selectors.set(index, (Selector) replacement);
+            adopt(replacement, index);
+        }
+        else
+        {
+            int index = indexOf(body, child);
+            if (index < 0)
+                return this;
+            orphan(child);
+            body.set(index, replacement);
+            adopt(replacement, index);
+        }
 
         return this;
     }
@@ -59,12 +115,6 @@ public class Stylerule extends ASTNode
                 Objects.equals(body, stylerule.body);
     }
 
-    @Override
-    public int hashCode()
-    {
-        return Objects.hash(selectors, body);
-    }
-
     @Override
     public String toString()
     {
@@ -87,4 +137,10 @@ public class Stylerule extends ASTNode
     	result.append("}").append("\n");
     	return result.toString();
     }
+
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor)
+    {
+        return visitor.visitStylerule(this);
+    }
 }
@@ -3,6 +3,7 @@ package nl.han.ica.icss.ast;
 import nl.han.ica.icss.checker.SemanticError;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -13,12 +14,24 @@ public class Stylesheet extends ASTNode {
 
 
 	public ArrayList<ASTNode> body;
+
+	//Nodes of this stylesheet with an error, created on first use
+	private ErrorRegistry errors;
 	
 	public Stylesheet() {
 		this.body = new ArrayList<>();
 	}
 	public Stylesheet(ArrayList<ASTNode> body) {
 		this.body = body;
+		for (int i = 0; i < body.size(); i++) {
+			adopt(body.get(i), i);
+		}
+	}
+	public ErrorRegistry getErrorRegistry() {
+		if (errors == null) {
+			errors = new ErrorRegistry(this);
+		}
+		return errors;
 	}
 	@Override
 	public String getNodeLabel() {
@@ -29,15 +42,61 @@ public class Stylesheet extends ASTNode {
 		return this.body;
 	}
 	@Override
+	public int getChildCount() {
+		return body.size();
+	}
+	@Override
+	public ASTNode getChild(int index) {
+		return body.get(index);
+	}
+	@Override
 	public ASTNode addChild(ASTNode child) {
+	    	checkNotShared();
 	    	body.add(child);
+	    	adopt(child, body.size() - 1);
 	    	return this;
 	}
 	@Override
 	public ASTNode removeChild(ASTNode child) {
-		body.remove(child);
+		checkNotShared();
+		//By identity, equal statements can occur more than once
+		int index = indexOf(body, child);
+		if (index < 0) {
+			return this;
+		}
+		body.remove(index);
+		orphan(child);
+		renumber(body, index);
 		return this;
 	}
+	@Override
+	public ASTNode replaceChild(ASTNode child, ASTNode replacement) {
+		checkNotShared();
+		int index = indexOf(body, child);
+		if (index < 0) {
+			return this;
+		}
+		orphan(child);
+		body.set(index, replacement);
+		adopt(replacement, index);
+		return this;
+	}
+	/*
+	 Replaces the statements from index from (inclusive) to index to (exclusive) by the given statements.
+	 */
+	public void replaceStatements(int from, int to, List<ASTNode> statements) {
+		checkNotShared();
+		List<ASTNode> range = body.subList(from, to);
+		for (ASTNode child : range) {
+			orphan(child);
+		}
+		range.clear();
+		body.addAll(from, statements);
+		for (ASTNode child : statements) {
+			adopt(child);
+		}
+		renumber(body, from);
+	}
 
 	@Override
 	public boolean equals(Object o) {
@@ -48,20 +107,19 @@ public class Stylesheet extends ASTNode {
 		return Objects.equals(body, that.body);
 	}
 
-	@Override
-	public int hashCode() {
-
-		return Objects.hash(body);
-	}
-
 	@Override
 	public String toString()
 	{
 		StringBuilder result = new StringBuilder();
-		for (ASTNode node : getChildren())
+		for (ASTNode node : body)
 		{
 			result.append(node.toString());
 		}
 		return result.toString();
 	}
+
+	@Override
+	public <R> R accept(ASTVisitor<R> visitor) {
+		return visitor.visitStylesheet(this);
+	}
 }
@@ -1,6 +1,5 @@
 package nl.han.ica.icss.ast;
 
-import java.util.ArrayList;
 import java.util.Objects;
 
 /**
@@ -19,24 +18,47 @@ public class VariableAssignment extends ASTNode {
 
 	@Override
 	public ASTNode addChild(ASTNode child) {
+		checkNotShared();
 		if(name == null) {
 			name = (VariableReference) child;
 		} else if(expression == null) {
 			expression = (Expression) child;
+		} else {
+			return this;
 		}
+		adopt(child);
 
 		return this;
 	}
 
 	@Override
-	public ArrayList<ASTNode> getChildren() {
+	public ASTNode replaceChild(ASTNode child, ASTNode replacement) {
+		checkNotShared();
+		if(child == name) {
+			name = (VariableReference) replacement;
+		} else if(child == expression) {
+			expression = (Expression) replacement;
+		} else {
+			return this;
+		}
+		orphan(child);
+		adopt(replacement);
+
+		return this;
+	}
+
+	@Override
+	public int getChildCount() {
+		return (name != null ? 1 : 0) + (expression != null ? 1 : 0);
+	}
 
-		ArrayList<ASTNode> children = new ArrayList<>();
-		if(name != null)
-			children.add(name);
-		if(expression != null)
-			children.add(expression);
-		return children;
+	@Override
+	public ASTNode getChild(int index) {
+		if(index == 0 && name != null)
+			return name;
+		if(index == (name != null ? 1 : 0) && expression != null)
+			return expression;
+		return super.getChild(index);
 	}
 
 	@Override
@@ -49,14 +71,14 @@ public class VariableAssignment extends ASTNode {
 				Objects.equals(expression, that.expression);
 	}
 
-	@Override
-	public int hashCode() {
-		return Objects.hash(name, expression);
-	}
-
 	@Override
 	public String toString()
 	{
 		return "";
 	}
+
+	@Override
+	public <R> R accept(ASTVisitor<R> visitor) {
+		return visitor.visitVariableAssignment(this);
+	}
 }
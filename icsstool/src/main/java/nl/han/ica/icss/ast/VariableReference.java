@@ -26,8 +26,13 @@ public class VariableReference extends Expression {
 	}
 
 	@Override
-	public int hashCode() {
+	protected int attributeHash() {
 
 		return Objects.hash(name);
 	}
+
+	@Override
+	public <R> R accept(ASTVisitor<R> visitor) {
+		return visitor.visitVariableReference(this);
+	}
 }
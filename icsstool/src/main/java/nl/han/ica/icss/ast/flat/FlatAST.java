@@ -0,0 +1,363 @@
+package nl.han.ica.icss.ast.flat;
+
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.ast.literals.*;
+import nl.han.ica.icss.ast.operations.AddOperation;
+import nl.han.ica.icss.ast.operations.MultiplyOperation;
+import nl.han.ica.icss.ast.operations.SubtractOperation;
+import nl.han.ica.icss.ast.selectors.ClassSelector;
+import nl.han.ica.icss.ast.selectors.IdSelector;
+import nl.han.ica.icss.ast.selectors.TagSelector;
+import nl.han.ica.icss.checker.Checker;
+import nl.han.ica.icss.checker.SemanticError;
+import nl.han.ica.icss.generator.Generator;
+import nl.han.ica.icss.transforms.EvalExpressions;
+import nl.han.ica.icss.transforms.RemoveIf;
+import nl.han.ica.icss.transforms.Transform;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import static nl.han.ica.icss.ast.NodeKind.*;
+
+/**
+ * Struct-of-arrays form of an AST, for stylesheets too large to keep as one object per node.
+ *
+ * Nodes are numbered in pre-order, the stylesheet is node 0. Per node three primitives are stored:
+ * its kind, a value (the literal value, or an index in the string table for names, selectors
+ * and colors) and the end of its subtree, so the children of a node are the range up to its end.
+ * The first child of node n is n + 1, the sibling after node n is end(n). The kinds are those of
+ * NodeKind, the same numbers as in an ASTSnapshot.
+ *
+ * The existing Checker, transforms and Generator work on ASTNode objects. check(), transform() and
+ * generate() expand one top-level statement at a time for them, so only one statement exists as
+ * objects at any moment. The global variables are carried from one statement to the next by the
+ * Checker and by the transforms.
+ */
+public final class FlatAST {
+
+    private byte[] kinds;
+    private int[] values;
+    private int[] ends;
+    private int size;
+    private String[] strings;
+    //Errors are rare, so they are kept by node number instead of in an array per node
+    private final HashMap<Integer, SemanticError> errors = new HashMap<>();
+
+    private FlatAST(int capacity) {
+        kinds = new byte[capacity];
+        values = new int[capacity];
+        ends = new int[capacity];
+    }
+
+    public static FlatAST of(AST ast) {
+        Flattener flattener = new Flattener();
+        flattener.add(ast.root);
+        return flattener.finish();
+    }
+
+    public int size() {
+        return size;
+    }
+    public byte kind(int node) {
+        return kinds[node];
+    }
+    public int value(int node) {
+        return values[node];
+    }
+    //The name, selector or color of a node with a string value
+    public String string(int node) {
+        return strings[values[node]];
+    }
+    public int end(int node) {
+        return ends[node];
+    }
+    public int childCount(int node) {
+        int count = 0;
+        for (int child = node + 1; child < ends[node]; child = ends[child]) {
+            count++;
+        }
+        return count;
+    }
+    public SemanticError error(int node) {
+        return errors.get(node);
+    }
+
+    public ArrayList<SemanticError> getErrors() {
+        ArrayList<SemanticError> result = new ArrayList<>();
+        for (int node = 0; node < size; node++) {
+            SemanticError error = errors.get(node);
+            if (error != null) {
+                result.add(error);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Expands the whole tree to ASTNode objects.
+     */
+    public AST toAST() {
+        return new AST((Stylesheet) expand(0));
+    }
+
+    /**
+     * Expands the subtree of one node to ASTNode objects.
+     */
+    public ASTNode expand(int node) {
+        ASTNode result;
+        switch (kinds[node]) {
+            case NULL: return null;
+            case STYLESHEET: result = new Stylesheet(); break;
+            case STYLERULE: result = new Stylerule(); break;
+            case DECLARATION: result = new Declaration(); break;
+            case PROPERTY_NAME: result = new PropertyName(string(node)); break;
+            case IF_CLAUSE: result = new IfClause(); break;
+            case VARIABLE_ASSIGNMENT: result = new VariableAssignment(); break;
+            case VARIABLE_REFERENCE: result = new VariableReference(string(node)); break;
+            case BOOL_LITERAL: result = new BoolLiteral(values[node] != 0); break;
+            case COLOR_LITERAL: result = new ColorLiteral(string(node)); break;
+            case PERCENTAGE_LITERAL: result = new PercentageLiteral(values[node]); break;
+            case PIXEL_LITERAL: result = new PixelLiteral(values[node]); break;
+            case SCALAR_LITERAL: result = new ScalarLiteral(values[node]); break;
+            case ADD_OPERATION: result = new AddOperation(); break;
+            case MULTIPLY_OPERATION: result = new MultiplyOperation(); break;
+            case SUBTRACT_OPERATION: result = new SubtractOperation(); break;
+            case TAG_SELECTOR: result = new TagSelector(string(node)); break;
+            case CLASS_SELECTOR: result = new ClassSelector(string(node)); break;
+            case ID_SELECTOR: result = new IdSelector(string(node)); break;
+            default: throw new IllegalStateException("Unknown node kind " + kinds[node]);
+        }
+        for (int child = node + 1; child < ends[node]; child = ends[child]) {
+            ASTNode expanded = expand(child);
+            if (expanded != null) {
+                result.addChild(expanded);
+            }
+        }
+        SemanticError error = errors.get(node);
+        if (error != null) {
+            result.setError(error.description);
+        }
+        return result;
+    }
+
+    /**
+     * Runs the Checker one statement at a time and records its errors on the flat nodes.
+     * @return true when there are no errors
+     */
+    public boolean check() {
+        //Cleared first, so the statements are expanded without the errors of an earlier check
+        errors.clear();
+        Checker checker = new Checker();
+        checker.startStatements();
+        for (int node = 1; node < ends[0]; node = ends[node]) {
+            ASTNode expanded = expand(node);
+            if (expanded != null) {
+                AST statement = new AST();
+                statement.root.addChild(expanded);
+                checker.checkStatement(statement);
+                collectErrors(expanded, node);
+            }
+        }
+        return errors.isEmpty();
+    }
+
+    //Pre-order numbering of the expanded tree is the same as the flat one, apart from null children
+    private int collectErrors(ASTNode node, int number) {
+        while (kinds[number] == NULL) {
+            number++;
+        }
+        if (node.hasError()) {
+            errors.put(number, node.getError());
+        }
+        int next = number + 1;
+        for (int i = 0; i < node.getChildCount(); i++) {
+            ASTNode child = node.getChild(i);
+            if (child != null) {
+                next = collectErrors(child, next);
+            }
+        }
+        return ends[number];
+    }
+
+    /**
+     * Applies the transformations of the pipeline one statement at a time.
+     * @return the transformed tree, this one is not changed
+     */
+    public FlatAST transform() {
+        //One instance of each for all statements, they keep the values of the global variables
+        Transform[] transforms = {new EvalExpressions(), new RemoveIf()};
+        Flattener flattener = new Flattener();
+        flattener.add(new Stylesheet());
+        if (errors.containsKey(0)) {
+            flattener.flat.errors.put(0, errors.get(0));
+        }
+        for (int node = 1; node < ends[0]; node = ends[node]) {
+            ASTNode expanded = expand(node);
+            if (expanded != null) {
+                AST statement = new AST();
+                statement.root.addChild(expanded);
+                for (Transform transform : transforms) {
+                    transform.apply(statement);
+                }
+                for (int i = 0; i < statement.root.getChildCount(); i++) {
+                    flattener.add(statement.root.getChild(i));
+                }
+            }
+        }
+        flattener.flat.ends[0] = flattener.flat.size;
+        return flattener.finish();
+    }
+
+    /**
+     * Generates the same CSS as the Generator on the expanded tree, one statement at a time.
+     */
+    public String generate() {
+        Generator generator = new Generator();
+        StringBuilder css = new StringBuilder();
+        for (int node = 1; node < ends[0]; node = ends[node]) {
+            ASTNode expanded = expand(node);
+            if (expanded != null) {
+                AST statement = new AST();
+                statement.root.addChild(expanded);
+                css.append(generator.generate(statement));
+            }
+        }
+        return css.toString();
+    }
+
+    /*
+     Appends nodes in pre-order, the visitor stores the kind and value of each node.
+     */
+    private static class Flattener implements ASTVisitor<Void> {
+        final FlatAST flat = new FlatAST(1024);
+        final List<String> strings = new ArrayList<>();
+        final HashMap<String, Integer> stringIndexes = new HashMap<>();
+
+        void add(ASTNode node) {
+            int number = flat.size;
+            if (number == flat.kinds.length) {
+                int capacity = number * 2;
+                flat.kinds = Arrays.copyOf(flat.kinds, capacity);
+                flat.values = Arrays.copyOf(flat.values, capacity);
+                flat.ends = Arrays.copyOf(flat.ends, capacity);
+            }
+            flat.size++;
+            if (node == null) {
+                set(NULL, 0);
+            } else {
+                node.accept(this);
+                if (node.hasError()) {
+                    flat.errors.put(number, node.getError());
+                }
+                for (int i = 0; i < node.getChildCount(); i++) {
+                    add(node.getChild(i));
+                }
+            }
+            flat.ends[number] = flat.size;
+        }
+
+        FlatAST finish() {
+            flat.kinds = Arrays.copyOf(flat.kinds, flat.size);
+            flat.values = Arrays.copyOf(flat.values, flat.size);
+            flat.ends = Arrays.copyOf(flat.ends, flat.size);
+            flat.strings = strings.toArray(new String[0]);
+            return flat;
+        }
+
+        private Void set(byte kind, int value) {
+            flat.kinds[flat.size - 1] = kind;
+            flat.values[flat.size - 1] = value;
+            return null;
+        }
+
+        private int indexOf(String string) {
+            Integer index = stringIndexes.get(string);
+            if (index == null) {
+                index = strings.size();
+                strings.add(string);
+                stringIndexes.put(string, index);
+            }
+            return index;
+        }
+
+        @Override
+        public Void visitNode(ASTNode node) {
+            throw new IllegalArgumentException("Cannot flatten " + node.getNodeLabel());
+        }
+        @Override
+        public Void visitStylesheet(Stylesheet node) {
+            return set(STYLESHEET, 0);
+        }
+        @Override
+        public Void visitStylerule(Stylerule node) {
+            return set(STYLERULE, 0);
+        }
+        @Override
+        public Void visitDeclaration(Declaration node) {
+            return set(DECLARATION, 0);
+        }
+        @Override
+        public Void visitPropertyName(PropertyName node) {
+            return set(PROPERTY_NAME, indexOf(node.name));
+        }
+        @Override
+        public Void visitIfClause(IfClause node) {
+            return set(IF_CLAUSE, 0);
+        }
+        @Override
+        public Void visitVariableAssignment(VariableAssignment node) {
+            return set(VARIABLE_ASSIGNMENT, 0);
+        }
+        @Override
+        public Void visitVariableReference(VariableReference node) {
+            return set(VARIABLE_REFERENCE, indexOf(node.name));
+        }
+        @Override
+        public Void visitBoolLiteral(BoolLiteral node) {
+            return set(BOOL_LITERAL, node.value ? 1 : 0);
+        }
+        @Override
+        public Void visitColorLiteral(ColorLiteral node) {
+            return set(COLOR_LITERAL, indexOf(node.value));
+        }
+        @Override
+        public Void visitPercentageLiteral(PercentageLiteral node) {
+            return set(PERCENTAGE_LITERAL, node.value);
+        }
+        @Override
+        public Void visitPixelLiteral(PixelLiteral node) {
+            return set(PIXEL_LITERAL, node.value);
+        }
+        @Override
+        public Void visitScalarLiteral(ScalarLiteral node) {
+            return set(SCALAR_LITERAL, node.value);
+        }
+        @Override
+        public Void visitAddOperation(AddOperation node) {
+            return set(ADD_OPERATION, 0);
+        }
+        @Override
+        public Void visitMultiplyOperation(MultiplyOperation node) {
+            return set(MULTIPLY_OPERATION, 0);
+        }
+        @Override
+        public Void visitSubtractOperation(SubtractOperation node) {
+            return set(SUBTRACT_OPERATION, 0);
+        }
+        @Override
+        public Void visitTagSelector(TagSelector node) {
+            return set(TAG_SELECTOR, indexOf(node.tag));
+        }
+        @Override
+        public Void visitClassSelector(ClassSelector node) {
+            return set(CLASS_SELECTOR, indexOf(node.cls));
+        }
+        @Override
+        public Void visitIdSelector(IdSelector node) {
+            return set(ID_SELECTOR, indexOf(node.id));
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package nl.han.ica.icss.ast.literals;
 
+import nl.han.ica.icss.ast.ASTVisitor;
 import nl.han.ica.icss.ast.Literal;
+import nl.han.ica.icss.ast.types.ExpressionType;
 
 import java.util.Objects;
 
@@ -13,6 +15,11 @@ public class BoolLiteral extends Literal {
     public BoolLiteral(String text) {
         this.value = text.equals("TRUE");
     }
+    @Override
+    public ExpressionType getType() {
+        return ExpressionType.BOOL;
+    }
+
     @Override
     public String getNodeLabel() {
         String textValue = value ? "TRUE" : "FALSE";
@@ -29,7 +36,7 @@ public class BoolLiteral extends Literal {
     }
 
     @Override
-    public int hashCode() {
+    protected int attributeHash() {
         return Objects.hash(value);
     }
 
@@ -38,4 +45,9 @@ public class BoolLiteral extends Literal {
     {
         return String.valueOf(value);
     }
+
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visitBoolLiteral(this);
+    }
 }
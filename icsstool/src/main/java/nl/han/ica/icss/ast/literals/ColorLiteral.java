@@ -1,6 +1,8 @@
 package nl.han.ica.icss.ast.literals;
 
+import nl.han.ica.icss.ast.ASTVisitor;
 import nl.han.ica.icss.ast.Literal;
+import nl.han.ica.icss.ast.types.ExpressionType;
 
 import java.util.Objects;
 
@@ -10,6 +12,11 @@ public class ColorLiteral extends Literal {
     public ColorLiteral(String value) {
         this.value = value;
     }
+    @Override
+    public ExpressionType getType() {
+        return ExpressionType.COLOR;
+    }
+
     @Override
     public String getNodeLabel() {
         return "Color literal (" + value + ")";
@@ -24,7 +31,7 @@ public class ColorLiteral extends Literal {
         return Objects.equals(value, that.value);
     }
     @Override
-    public int hashCode() {
+    protected int attributeHash() {
 
         return Objects.hash(value);
     }
@@ -34,4 +41,9 @@ public class ColorLiteral extends Literal {
     {
         return value;
     }
+
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visitColorLiteral(this);
+    }
 }
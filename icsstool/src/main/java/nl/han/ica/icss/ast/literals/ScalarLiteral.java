@@ -1,6 +1,8 @@
 package nl.han.ica.icss.ast.literals;
 
+import nl.han.ica.icss.ast.ASTVisitor;
 import nl.han.ica.icss.ast.Literal;
+import nl.han.ica.icss.ast.types.ExpressionType;
 
 import java.util.Objects;
 
@@ -13,6 +15,11 @@ public class ScalarLiteral extends Literal {
     public ScalarLiteral(String text) {
         this.value = Integer.parseInt(text);
     }
+    @Override
+    public ExpressionType getType() {
+        return ExpressionType.SCALAR;
+    }
+
     @Override
     public String getNodeLabel() {
         return "Scalar literal (" + value + ")";
@@ -28,7 +35,7 @@ public class ScalarLiteral extends Literal {
     }
 
     @Override
-    public int hashCode() {
+    protected int attributeHash() {
         return Objects.hash(value);
     }
 
@@ -37,4 +44,9 @@ public class ScalarLiteral extends Literal {
     {
         return String.valueOf(value);
     }
+
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visitScalarLiteral(this);
+    }
 }
@@ -1,11 +1,23 @@
 package nl.han.ica.icss.ast.operations;
 
+import nl.han.ica.icss.ast.ASTVisitor;
 import nl.han.ica.icss.ast.Operation;
+import nl.han.ica.icss.ast.types.Operator;
 
 public class MultiplyOperation extends Operation {
 
+    @Override
+    public Operator getOperator() {
+        return Operator.MULTIPLY;
+    }
+
     @Override
     public String getNodeLabel() {
         return "Multiply";
     }
+
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visitMultiplyOperation(this);
+    }
 }
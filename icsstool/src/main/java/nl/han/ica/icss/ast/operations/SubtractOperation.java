@@ -1,11 +1,23 @@
 package nl.han.ica.icss.ast.operations;
 
+import nl.han.ica.icss.ast.ASTVisitor;
 import nl.han.ica.icss.ast.Operation;
+import nl.han.ica.icss.ast.types.Operator;
 
 public class SubtractOperation extends Operation {
 
+    @Override
+    public Operator getOperator() {
+        return Operator.SUBTRACT;
+    }
+
     @Override
     public String getNodeLabel() {
         return "Subtract";
     }
+
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visitSubtractOperation(this);
+    }
 }
@@ -1,5 +1,6 @@
 package nl.han.ica.icss.ast.selectors;
 
+import nl.han.ica.icss.ast.ASTVisitor;
 import nl.han.ica.icss.ast.Selector;
 
 import java.util.Objects;
@@ -30,7 +31,12 @@ public class ClassSelector extends Selector {
     }
 
     @Override
-    public int hashCode() {
+    protected int attributeHash() {
         return Objects.hash(cls);
     }
+
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visitClassSelector(this);
+    }
 }
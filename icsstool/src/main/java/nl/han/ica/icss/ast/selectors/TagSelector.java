@@ -1,5 +1,6 @@
 package nl.han.ica.icss.ast.selectors;
 
+import nl.han.ica.icss.ast.ASTVisitor;
 import nl.han.ica.icss.ast.Selector;
 
 import java.util.Objects;
@@ -30,8 +31,13 @@ public class TagSelector extends Selector {
     }
 
     @Override
-    public int hashCode() {
+    protected int attributeHash() {
 
         return Objects.hash(tag);
     }
+
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visitTagSelector(this);
+    }
 }
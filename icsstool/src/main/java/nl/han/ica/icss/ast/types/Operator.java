@@ -0,0 +1,7 @@
+package nl.han.ica.icss.ast.types;
+
+public enum Operator {
+    ADD,
+    SUBTRACT,
+    MULTIPLY
+}
@@ -0,0 +1,46 @@
+package nl.han.ica.icss.ast.types;
+
+import java.util.Arrays;
+
+/**
+ * Result type of every operator for every pair of operand types, UNDEFINED when the operator
+ * does not apply to the operands. A lookup is an array index, whatever the nesting of operations.
+ *
+ * Adding and subtracting needs operands of the same dimension (pixels, percentages or scalars).
+ * Multiplying needs at least one scalar, the result has the dimension of the other operand.
+ */
+public final class OperatorTable {
+
+    private static final ExpressionType[] TYPES = ExpressionType.values();
+    private static final ExpressionType[][][] RESULTS = new ExpressionType[Operator.values().length][TYPES.length][TYPES.length];
+
+    static {
+        for (ExpressionType[][] results : RESULTS) {
+            for (ExpressionType[] row : results) {
+                Arrays.fill(row, ExpressionType.UNDEFINED);
+            }
+        }
+        for (ExpressionType type : new ExpressionType[]{ExpressionType.PIXEL, ExpressionType.PERCENTAGE, ExpressionType.SCALAR}) {
+            put(Operator.ADD, type, type, type);
+            put(Operator.SUBTRACT, type, type, type);
+            put(Operator.MULTIPLY, ExpressionType.SCALAR, type, type);
+            put(Operator.MULTIPLY, type, ExpressionType.SCALAR, type);
+        }
+    }
+
+    private OperatorTable() {
+    }
+
+    private static void put(Operator operator, ExpressionType lhs, ExpressionType rhs, ExpressionType result) {
+        RESULTS[operator.ordinal()][lhs.ordinal()][rhs.ordinal()] = result;
+    }
+
+    /**
+     * @return the type of the operation, UNDEFINED when an operand type is unknown (null) or does not fit
+     */
+    public static ExpressionType resultType(Operator operator, ExpressionType lhs, ExpressionType rhs) {
+        if (lhs == null || rhs == null)
+            return ExpressionType.UNDEFINED;
+        return RESULTS[operator.ordinal()][lhs.ordinal()][rhs.ordinal()];
+    }
+}
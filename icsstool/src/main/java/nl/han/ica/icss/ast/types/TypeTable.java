@@ -0,0 +1,70 @@
+package nl.han.ica.icss.ast.types;
+
+import nl.han.ica.icss.ast.ASTNode;
+import nl.han.ica.icss.ast.Expression;
+import nl.han.ica.icss.ast.Literal;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Side table with the type of the expressions of one stylesheet. The Checker fills it in a single
+ * bottom-up pass (an operation gets its type from the OperatorTable and the types of its operands),
+ * the later stages read it instead of deriving the types again.
+ *
+ * Expressions are kept by identity. Literals are not stored, their type does not depend on where they
+ * occur. A shared expression (see NodeInterner) that has a different type in different scopes has
+ * no type in the table, like an expression that was not checked.
+ */
+public class TypeTable {
+
+    private final IdentityHashMap<Expression, ExpressionType> types = new IdentityHashMap<>();
+    private final Set<Expression> ambiguous = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    public void put(Expression expression, ExpressionType type) {
+        if (expression instanceof Literal || ambiguous.contains(expression))
+            return;
+        ExpressionType previous = types.put(expression, type);
+        if (previous != null && previous != type && expression.isShared()) {
+            types.remove(expression);
+            ambiguous.add(expression);
+        }
+    }
+
+    /**
+     * @return the type of the expression, null when it is not known
+     */
+    public ExpressionType get(Expression expression) {
+        if (expression instanceof Literal)
+            return ((Literal) expression).getType();
+        return types.get(expression);
+    }
+
+    /*
+     Adds the types of the other table, which has types of other expressions.
+     */
+    public void putAll(TypeTable other) {
+        other.types.forEach(this::put);
+        ambiguous.addAll(other.ambiguous);
+    }
+
+    /*
+     Forgets the types of the expressions in the subtree, when it was removed from the stylesheet.
+     */
+    public void remove(ASTNode node) {
+        if (node instanceof Expression && !node.isShared()) {
+            types.remove(node);
+        }
+        for (int i = 0; i < node.getChildCount(); i++) {
+            ASTNode child = node.getChild(i);
+            if (child != null) {
+                remove(child);
+            }
+        }
+    }
+
+    public int size() {
+        return types.size();
+    }
+}
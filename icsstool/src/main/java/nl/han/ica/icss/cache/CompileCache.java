@@ -0,0 +1,270 @@
+package nl.han.ica.icss.cache;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Persistent, content-addressed cache of compile results.
+ *
+ * Entries are keyed by a SHA-256 hash over the input bytes, the compiler (see CompilerFingerprint)
+ * and the options that change the result, and store the generated CSS (if any) together with the
+ * errors. A hit makes it unnecessary to run the pipeline at all.
+ *
+ * Entries are written to a temporary file and atomically moved into place, so concurrent
+ * processes sharing a cache directory never see partial entries. When the cache grows beyond
+ * its maximum size the least recently used entries are removed.
+ */
+public class CompileCache {
+
+    private static final int MAGIC = 0x49435343; //ICSC
+    private static final int FORMAT_VERSION = 1;
+    private static final String ENTRY_EXTENSION = ".entry";
+
+    private final Path directory;
+    private final long maxBytes;
+    private final AtomicLong size = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public CompileCache(Path directory, long maxBytes) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(directory);
+        size.set(totalSize(listEntries()));
+    }
+
+    /**
+     * A cached compile result: the generated CSS (null when compilation failed) and the errors.
+     */
+    public static class Entry {
+        public final String css;
+        public final List<String> errors;
+
+        public Entry(String css, List<String> errors) {
+            this.css = css;
+            this.errors = errors;
+        }
+    }
+
+    /**
+     * Computes the cache key of a file, the file is hashed through a memory mapping.
+     */
+    public static String key(Path input, String compiler, List<String> options) throws IOException {
+        MessageDigest digest = sha256();
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            digest.update(bytes);
+        }
+        return key(digest, compiler, options);
+    }
+
+    public static String key(byte[] input, String compiler, List<String> options) {
+        MessageDigest digest = sha256();
+        digest.update(input);
+        return key(digest, compiler, options);
+    }
+
+    private static String key(MessageDigest digest, String compiler, List<String> options) {
+        digest.update((byte) 0);
+        digest.update(compiler.getBytes(StandardCharsets.UTF_8));
+        for (String option : options) {
+            digest.update((byte) 0);
+            digest.update(option.getBytes(StandardCharsets.UTF_8));
+        }
+        return hex(digest.digest());
+    }
+
+    static String hex(byte[] bytes) {
+        StringBuilder text = new StringBuilder();
+        for (byte b : bytes) {
+            text.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return text.toString();
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns the cached entry for the key, or null on a miss.
+     */
+    public Entry get(String key) {
+        Path file = entryPath(key);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                misses.incrementAndGet();
+                return null;
+            }
+            int errorCount = in.readInt();
+            List<String> errors = new ArrayList<>(errorCount);
+            for (int i = 0; i < errorCount; i++) {
+                errors.add(readString(in));
+            }
+            String css = in.readBoolean() ? readString(in) : null;
+
+            //Mark as recently used for the eviction order
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            hits.incrementAndGet();
+            return new Entry(css, errors);
+        } catch (IOException e) {
+            //Missing, evicted by another process or corrupt: all are misses
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * Stores an entry. Failing to write is not an error, the result is simply not cached.
+     */
+    public void put(String key, Entry entry) {
+        Path file = entryPath(key);
+        Path temporary = null;
+        try {
+            Files.createDirectories(file.getParent());
+            temporary = Files.createTempFile(file.getParent(), key, ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(entry.errors.size());
+                for (String error : entry.errors) {
+                    writeString(out, error);
+                }
+                out.writeBoolean(entry.css != null);
+                if (entry.css != null) {
+                    writeString(out, entry.css);
+                }
+            }
+            long written = Files.size(temporary) - sizeOf(file);
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            temporary = null;
+
+            writes.incrementAndGet();
+            if (size.addAndGet(written) > maxBytes) {
+                evict();
+            }
+        } catch (IOException e) {
+            if (temporary != null) {
+                try {
+                    Files.deleteIfExists(temporary);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    /*
+     Removes the least recently used entries until the cache is back at 90% of its maximum size.
+     The directory is rescanned, so entries written by other processes are accounted for as well.
+     */
+    private synchronized void evict() throws IOException {
+        List<Path> entries = listEntries();
+        long total = totalSize(entries);
+        if (total <= maxBytes) {
+            size.set(total);
+            return;
+        }
+        List<Path> oldestFirst = entries.stream()
+                .sorted(Comparator.comparing(CompileCache::lastModified))
+                .collect(Collectors.toList());
+        long target = maxBytes / 10 * 9;
+        for (Path entry : oldestFirst) {
+            if (total <= target)
+                break;
+            long entrySize = sizeOf(entry);
+            if (Files.deleteIfExists(entry)) {
+                total -= entrySize;
+                evictions.incrementAndGet();
+            }
+        }
+        size.set(total);
+    }
+
+    private List<Path> listEntries() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            return paths.filter(path -> path.toString().endsWith(ENTRY_EXTENSION)).collect(Collectors.toList());
+        }
+    }
+
+    private static long totalSize(List<Path> entries) {
+        long total = 0;
+        for (Path entry : entries) {
+            total += sizeOf(entry);
+        }
+        return total;
+    }
+
+    private static long sizeOf(Path entry) {
+        try {
+            return Files.size(entry);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static FileTime lastModified(Path entry) {
+        try {
+            return Files.readAttributes(entry, BasicFileAttributes.class).lastModifiedTime();
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private Path entryPath(String key) {
+        return directory.resolve(key.substring(0, 2)).resolve(key + ENTRY_EXTENSION);
+    }
+
+    private static void writeString(DataOutputStream out, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+    public long getMisses() {
+        return misses.get();
+    }
+    public long getWrites() {
+        return writes.get();
+    }
+    public long getEvictions() {
+        return evictions.get();
+    }
+    public long getSize() {
+        return size.get();
+    }
+
+    @Override
+    public String toString() {
+        return hits + " hit(s), " + misses + " miss(es), " + writes + " write(s), " + evictions + " eviction(s), "
+                + size + " byte(s) cached";
+    }
+}
@@ -0,0 +1,99 @@
+package nl.han.ica.icss.cache;
+
+import nl.han.ica.icss.Pipeline;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Identifies the compiler implementation in the CompileCache key, so that a changed compiler
+ * never gets the results of an older one.
+ *
+ * The fingerprint is a SHA-256 hash over the version, the jar or class directory the compiler
+ * was loaded from and the property schema of the Checker. It changes with every build that
+ * changes the code or the schema, without a version number to maintain by hand.
+ * It is computed once per process.
+ */
+public final class CompilerFingerprint {
+
+    private static final String SCHEMA = "/nl/han/ica/icss/checker/properties.schema";
+
+    //Computed on first use, by the class loader
+    private static class Holder {
+        static final String FINGERPRINT = compute();
+    }
+
+    private CompilerFingerprint() {
+    }
+
+    public static String get() {
+        return Holder.FINGERPRINT;
+    }
+
+    private static String compute() {
+        MessageDigest digest = CompileCache.sha256();
+        digest.update(Pipeline.VERSION.getBytes(StandardCharsets.UTF_8));
+        try {
+            digest.update((byte) 0);
+            updateImplementation(digest);
+            digest.update((byte) 0);
+            try (InputStream in = Pipeline.class.getResourceAsStream(SCHEMA)) {
+                if (in == null)
+                    throw new IllegalStateException(SCHEMA + " is missing");
+                digest.update(in.readAllBytes());
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return Pipeline.VERSION + "-" + CompileCache.hex(digest.digest());
+    }
+
+    /*
+     Hashes the jar, or every file of the class directory in a fixed order. Without a code source
+     (a custom class loader) only the implementation version of the package is known.
+     */
+    private static void updateImplementation(MessageDigest digest) throws IOException {
+        Path location = codeLocation();
+        if (location == null) {
+            String version = Pipeline.class.getPackage().getImplementationVersion();
+            if (version != null) {
+                digest.update(version.getBytes(StandardCharsets.UTF_8));
+            }
+        } else if (Files.isDirectory(location)) {
+            List<Path> files;
+            try (Stream<Path> paths = Files.walk(location)) {
+                files = paths.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+            }
+            for (Path file : files) {
+                digest.update(location.relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                digest.update(Files.readAllBytes(file));
+            }
+        } else {
+            digest.update(Files.readAllBytes(location));
+        }
+    }
+
+    private static Path codeLocation() {
+        CodeSource source = Pipeline.class.getProtectionDomain().getCodeSource();
+        URL url = source == null ? null : source.getLocation();
+        if (url == null || !"file".equals(url.getProtocol()))
+            return null;
+        try {
+            return Paths.get(url.toURI());
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -1,186 +1,574 @@
 package nl.han.ica.icss.checker;
 
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.RecursiveTask;
 
 import nl.han.ica.icss.ast.*;
-import nl.han.ica.icss.ast.literals.*;
-import nl.han.ica.icss.ast.operations.AddOperation;
-import nl.han.ica.icss.ast.operations.MultiplyOperation;
-import nl.han.ica.icss.ast.operations.SubtractOperation;
 import nl.han.ica.icss.ast.types.*;
 
 public class Checker
 {
-    private static final int GLOBAL_SCOPE = 0;
+    //Stylerules checked by one task
+    private static final int RULES_PER_TASK = 256;
 
-    private LinkedList<HashMap<String, ExpressionType>> variableTypes;
-    private int currentScope = 0;
+    private SymbolTable symbols;
+    private TypeTable types;
+    private final PropertySchema schema = PropertySchema.getStandard();
 
-    public void check(AST ast)
+    private ErrorRegistry errors;
+    private ASTNode currentStatement;
+    private int currentIndex;
+    //Errors of a parallel task, applied in source order when the task is joined
+    private List<PendingError> pending;
+    //Set when a parallel check stops, the tasks that are still running skip their remaining stylerules
+    private volatile boolean cancelled;
+
+    //When false every check walks the statement on its own, as before the checks shared one walk
+    private boolean fusedPasses = true;
+    //When true runs of stylerules are checked concurrently, see checkParallel
+    private boolean parallel = false;
+
+    //When true the checker remembers what it checked, and checks only what changed, see recheck
+    private boolean incremental = false;
+    private Stylesheet checkedRoot;
+    private final DependencyIndex index = new DependencyIndex();
+    //Variable names referenced by the statement being checked, when incremental
+    private Set<String> currentReferences;
+    //Statements walked by the checks in the last check
+    private int checkedStatementCount;
+    //Receives the errors as they are found, and can stop the check
+    private DiagnosticListener listener;
+
+    public boolean isFusedPasses()
     {
-        variableTypes = new LinkedList<>();
-        variableTypes.add(new HashMap<>());
+        return fusedPasses;
+    }
 
-        currentScope = 0;
+    public void setFusedPasses(boolean fusedPasses)
+    {
+        this.fusedPasses = fusedPasses;
+    }
 
-        for (ASTNode node : ast.root.getChildren())
-        {
-            checkUndefinedVariablesInScope(node);
-            checkDeclarationValue(node);
-//            checkOperationOperands(node);
-            checkIfStatementHasBool(node);
-        }
+    public boolean isParallel()
+    {
+        return parallel;
     }
 
-    //CH01 & CH06
-    private void checkUndefinedVariablesInScope(ASTNode node)
+    public void setParallel(boolean parallel)
     {
-        if (node instanceof Stylerule)
+        this.parallel = parallel;
+    }
+
+    public boolean isIncremental()
+    {
+        return incremental;
+    }
+
+    /*
+     An incremental checker is used for every check of one stylesheet. The first check is a full
+     (sequential) check, later checks of the same root only check what changed and keep the other errors.
+     The errors must not be cleared in between.
+     */
+    public void setIncremental(boolean incremental)
+    {
+        this.incremental = incremental;
+        checkedRoot = null;
+        index.clear();
+    }
+
+    public int getCheckedStatementCount()
+    {
+        return checkedStatementCount;
+    }
+
+    public DiagnosticListener getDiagnosticListener()
+    {
+        return listener;
+    }
+
+    /*
+     The listener gets every error as a Diagnostic when it is set on its node. When it is done the check
+     stops after the current statement, a parallel check stops setting errors and cancels the stylerules
+     that are still being checked.
+     */
+    public void setDiagnosticListener(DiagnosticListener listener)
+    {
+        this.listener = listener;
+    }
+
+    public void check(AST ast)
+    {
+        symbols = new SymbolTable();
+        errors = ast.root.getErrorRegistry();
+        checkedStatementCount = 0;
+
+        if (incremental && ast.root == checkedRoot && ast.getTypes() != null)
         {
-            currentScope++;
-            variableTypes.add(new HashMap<>());
+            types = ast.getTypes();
+            recheck(ast.root);
+            return;
         }
-        if (node instanceof VariableAssignment)
+        types = new TypeTable();
+        ast.setTypes(types);
+        if (incremental)
         {
-            variableTypes.get(currentScope).put(((VariableAssignment) node).name.name, getExpressionType(((VariableAssignment) node).expression));
-        }
-        if (node instanceof VariableReference)
+            //Another stylesheet, start over
+            ast.clearErrors();
+            index.clear();
+            checkedRoot = ast.root;
+        } else if (parallel)
         {
-            if (!variableTypes.get(currentScope).containsKey(((VariableReference) node).name) &&
-                    !variableTypes.get(GLOBAL_SCOPE).containsKey(((VariableReference) node).name))
-            {
-                node.setError("Variable used but undefined in current scope");
-            }
+            checkParallel(ast.root);
+            return;
         }
-        for (ASTNode nodes : node.getChildren())
+        ASTWalker[] walkers = walkers();
+        for (int i = 0; i < ast.root.getChildCount() && !isStopped(); i++)
         {
-            checkUndefinedVariablesInScope(nodes);
+            checkStatement(ast.root, i, walkers);
         }
     }
 
-    //CH02 werkt helaas niet volledig
-//    private void checkOperationOperands(ASTNode node)
-//    {
-//        if (node instanceof Operation)
-//        {
-//            ExpressionType lhsNode = getExpressionType(((Operation) node).lhs);
-//            ExpressionType rhsNode = getExpressionType(((Operation) node).rhs);
-//
-//            if (node instanceof MultiplyOperation)
-//            {
-//                if (lhsNode != ExpressionType.SCALAR && rhsNode != ExpressionType.SCALAR)
-//                    node.setError("Expected SCALAR expressions in multiplication");
-//            } else if (node instanceof AddOperation || node instanceof SubtractOperation)
-//            {
-//                if (!lhsNode.equals(rhsNode))
-//                {
-//                    node.setError("Expected operands to be the same expressiontype");
-//                }
-//            }
-//        }
-//        for (ASTNode nodes : node.getChildren())
-//        {
-//            checkOperationOperands(nodes);
-//        }
-//    }
+    /*
+     Starts a check of a stylesheet that is given one top-level statement at a time with checkStatement,
+     for a form of the AST that does not keep all its statements as objects (FlatAST). The global scope
+     starts empty.
+     */
+    public void startStatements()
+    {
+        symbols = new SymbolTable();
+        checkedStatementCount = 0;
+    }
 
-    //CH03 in .g4
+    /*
+     Checks the only statement of the stylesheet in the global scope that the statements checked before
+     it left, and declares its global variable for the statements after it. The types are set on the
+     given AST, the Checker keeps no reference to the statement.
+     */
+    public void checkStatement(AST statement)
+    {
+        errors = statement.root.getErrorRegistry();
+        types = new TypeTable();
+        statement.setTypes(types);
+        checkStatement(statement.root, 0, walkers());
+        currentStatement = null;
+        types = null;
+        errors = null;
+    }
 
-    //CH04
-    private void checkDeclarationValue(ASTNode node)
+    private boolean isStopped()
     {
-        String colorError = "Expected color literal for color declaration";
-        if (node instanceof Declaration)
+        return listener != null && listener.isDone();
+    }
+
+    /*
+     The global variable assignments are checked in order on the calling thread. Every run of stylerules
+     between them gets a copy of the global scope at that point, and is split into tasks of at most
+     RULES_PER_TASK stylerules that are checked on the fork-join pool with their own local scopes.
+     The tasks are joined in source order and their errors set in between those of the assignments,
+     so the result is the same as that of a sequential check. When the listener is done the tasks that
+     are still running are cancelled, they stop after their current stylerule.
+     */
+    private void checkParallel(Stylesheet root)
+    {
+        pending = new ArrayList<>();
+        cancelled = false;
+        List<CheckRules> tasks = new ArrayList<>();
+        ASTWalker[] walkers = walkers();
+        int count = root.getChildCount();
+        int i = 0;
+        while (i < count)
         {
-            if (((Declaration) node).property.name.contains("color"))
+            if (root.getChild(i) instanceof Stylerule)
             {
-                if (!(((Declaration) node).expression instanceof ColorLiteral) && !(((Declaration) node).expression instanceof VariableReference))
-                {
-                    node.setError(colorError);
-                } else
+                SymbolTable globals = new SymbolTable(symbols);
+                while (i < count && root.getChild(i) instanceof Stylerule)
                 {
-                    if (((Declaration) node).expression instanceof VariableReference && !variableTypeContainsReference((VariableReference) ((Declaration) node).expression, ExpressionType.COLOR))
+                    int from = i;
+                    while (i < count && i - from < RULES_PER_TASK && root.getChild(i) instanceof Stylerule)
                     {
-                        node.setError(colorError);
+                        i++;
                     }
+                    CheckRules task = new CheckRules(this, root, globals, from, i);
+                    task.fork();
+                    tasks.add(task);
                 }
+            } else
+            {
+                checkStatement(root, i, walkers);
+                i++;
             }
-            if (((Declaration) node).property.name.contains("width") || ((Declaration) node).property.name.contains("height"))
+        }
+
+        List<PendingError> assignments = pending;
+        pending = null;
+        int next = 0;
+        for (CheckRules task : tasks)
+        {
+            next = setErrors(root, assignments, next, task.from);
+            if (isStopped())
             {
-                if (((Declaration) node).expression instanceof VariableReference
-                        && (variableTypeContainsReference((VariableReference) ((Declaration) node).expression, ExpressionType.SCALAR)
-                        || variableTypeContainsReference((VariableReference) ((Declaration) node).expression, ExpressionType.COLOR)
-                        || variableTypeContainsReference((VariableReference) ((Declaration) node).expression, ExpressionType.BOOL)))
-                {
-                    node.setError("Expected percentage or pixel literal for width or height declaration");
-                }
+                break;
             }
+            Checker checked = task.join();
+            types.putAll(checked.types);
+            setErrors(root, checked.pending, 0, count);
         }
+        setErrors(root, assignments, next, count);
 
-        for (ASTNode nodes : node.getChildren())
+        //Nothing is reported after the stop, the tasks left only have to finish their current stylerule
+        cancelled = true;
+        for (CheckRules task : tasks)
         {
-            checkDeclarationValue(nodes);
+            checkedStatementCount += task.join().checkedStatementCount;
         }
     }
 
-    //CH05
-    private void checkIfStatementHasBool(ASTNode node)
+    /*
+     Sets the errors from index next of a list in source order, up to the first error of the statement
+     at index before. Returns the index of the first error it did not set.
+     */
+    private int setErrors(Stylesheet root, List<PendingError> errors, int next, int before)
     {
-        if (node instanceof IfClause)
+        for (; next < errors.size() && errors.get(next).statement < before; next++)
+        {
+            if (isStopped())
+            {
+                break;
+            }
+            PendingError error = errors.get(next);
+            currentStatement = root.getChild(error.statement);
+            setError(error.node, error.code, error.description);
+        }
+        return next;
+    }
+
+    /*
+     Checks the statements that are new or changed since the last check, and the statements that reference
+     a variable whose global assignment was added, changed or removed, following assignments that use
+     such a variable. All other stylerules are skipped, the other global assignments are only declared.
+     */
+    private void recheck(Stylesheet root)
+    {
+        Set<ASTNode> current = DependencyIndex.identitySet();
+        Set<ASTNode> affected = DependencyIndex.identitySet();
+        Set<String> changedNames = new HashSet<>();
+        for (int i = 0; i < root.getChildCount(); i++)
+        {
+            ASTNode statement = root.getChild(i);
+            current.add(statement);
+            if (!index.isUnchanged(statement))
+            {
+                affected.add(statement);
+                addName(changedNames, index.getDefinition(statement));
+                addName(changedNames, DependencyIndex.definedName(statement));
+            }
+        }
+        List<ASTNode> removed = new ArrayList<>();
+        for (ASTNode statement : index.getStatements())
+        {
+            if (!current.contains(statement))
+            {
+                removed.add(statement);
+            }
+        }
+        for (ASTNode statement : removed)
         {
-            Expression conditionalExpression = ((IfClause) node).getConditionalExpression();
-            if (!(conditionalExpression instanceof BoolLiteral))
+            addName(changedNames, index.getDefinition(statement));
+            index.remove(statement);
+            types.remove(statement);
+        }
+
+        Deque<String> work = new ArrayDeque<>(changedNames);
+        while (!work.isEmpty())
+        {
+            for (ASTNode statement : index.getDependents(work.poll()))
             {
-                if (conditionalExpression instanceof VariableReference)
+                String defined = index.getDefinition(statement);
+                if (affected.add(statement) && defined != null && changedNames.add(defined))
                 {
-                    if (!(variableTypes.getFirst().get(((VariableReference) conditionalExpression).name) == ExpressionType.BOOL))
-                    {
-                        node.setError("If condition must be of type boolean");
-                    }
+                    work.add(defined);
                 }
             }
         }
-        for (ASTNode nodes : node.getChildren())
+
+        errors.clear(affected);
+        ASTWalker[] walkers = walkers();
+        ASTWalker declarations = new ASTWalker().add(null, new ComputeTypes(false));
+        for (int i = 0; i < root.getChildCount(); i++)
+        {
+            ASTNode statement = root.getChild(i);
+            if (affected.contains(statement))
+            {
+                if (isStopped())
+                {
+                    //Its errors were cleared, it is checked next time
+                    index.remove(statement);
+                } else
+                {
+                    checkStatement(root, i, walkers);
+                }
+            } else if (!(statement instanceof Stylerule))
+            {
+                currentStatement = statement;
+                declarations.walk(statement);
+            }
+        }
+    }
+
+    private static void addName(Set<String> names, String name)
+    {
+        if (name != null)
         {
-            checkIfStatementHasBool(nodes);
+            names.add(name);
         }
     }
 
-    private ExpressionType getExpressionType(Expression expression)
+    private ASTWalker[] walkers()
     {
-        if (expression instanceof BoolLiteral)
+        //The types of the expressions are computed when the walk leaves them, after their operands,
+        //so the checks that use them run on leaving a node as well.
+        //Separate walks each compute the types again, without reporting undefined variables twice.
+        if (fusedPasses)
         {
-            return ExpressionType.BOOL;
-        } else if (expression instanceof ColorLiteral)
+            return new ASTWalker[]{new ASTWalker().add(new VariablesInScope(), new ComputeTypes(true)).add(null, declarationValue).add(null, ifStatementHasBool)};
+        }
+        return new ASTWalker[]{new ASTWalker().add(new VariablesInScope(), new ComputeTypes(true)),
+                new ASTWalker().add(null, new ComputeTypes(false)).add(null, declarationValue),
+                new ASTWalker().add(null, new ComputeTypes(false)).add(null, ifStatementHasBool)};
+    }
+
+    private void checkStatement(Stylesheet root, int index, ASTWalker[] walkers)
+    {
+        ASTNode node = root.getChild(index);
+        currentStatement = node;
+        currentIndex = index;
+        currentReferences = incremental ? new HashSet<>() : null;
+        for (ASTWalker walker : walkers)
         {
-            return ExpressionType.COLOR;
-        } else if (expression instanceof PercentageLiteral)
+            //Every stylerule is a scope, its variables are gone after the rule
+            if (node instanceof Stylerule)
+            {
+                symbols.push();
+            }
+            walker.walk(node);
+            if (node instanceof Stylerule)
+            {
+                symbols.pop();
+            }
+        }
+        checkedStatementCount++;
+        if (currentReferences != null)
         {
-            return ExpressionType.PERCENTAGE;
-        } else if (expression instanceof PixelLiteral)
+            this.index.put(node, currentReferences);
+            currentReferences = null;
+        }
+    }
+
+    /*
+     Checks the stylerules from index from (inclusive) to index to (exclusive) with a Checker of its own,
+     until the parent is cancelled. Returns that Checker, with the errors found in source order and the types.
+     */
+    private static class CheckRules extends RecursiveTask<Checker>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final Checker parent;
+        private final Stylesheet root;
+        private final SymbolTable globals;
+        private final int from;
+        private final int to;
+
+        CheckRules(Checker parent, Stylesheet root, SymbolTable globals, int from, int to)
         {
-            return ExpressionType.PIXEL;
-        } else if (expression instanceof ScalarLiteral)
+            this.parent = parent;
+            this.root = root;
+            this.globals = globals;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Checker compute()
         {
-            return ExpressionType.SCALAR;
-        } else if (expression instanceof VariableReference)
+            Checker checker = new Checker();
+            checker.fusedPasses = parent.fusedPasses;
+            checker.errors = parent.errors;
+            checker.symbols = new SymbolTable(globals);
+            checker.types = new TypeTable();
+            checker.pending = new ArrayList<>();
+            ASTWalker[] walkers = checker.walkers();
+            for (int i = from; i < to && !parent.cancelled; i++)
+            {
+                checker.checkStatement(root, i, walkers);
+            }
+            return checker;
+        }
+    }
+
+    private static class PendingError
+    {
+        final ASTNode node;
+        final ErrorCode code;
+        final String description;
+        final int statement;
+
+        PendingError(ASTNode node, ErrorCode code, String description, int statement)
         {
-            return variableTypes.getFirst().get(((VariableReference) expression).name);
+            this.node = node;
+            this.code = code;
+            this.description = description;
+            this.statement = statement;
         }
-        return ExpressionType.UNDEFINED;
     }
 
-    private boolean variableTypeContainsReference(VariableReference node, ExpressionType type)
+    //CH01 & CH06
+    private class VariablesInScope implements ASTVisitor<Void>
     {
-        for (HashMap variableType : variableTypes)
+        //Name of the assignment being entered, it is the first reference visited below it
+        private VariableReference assigned;
+
+        @Override
+        public Void visitVariableAssignment(VariableAssignment node)
+        {
+            assigned = node.name;
+            return null;
+        }
+
+        @Override
+        public Void visitVariableReference(VariableReference node)
         {
-            if (variableType.get(node.name) == type)
+            if (node == assigned)
+            {
+                assigned = null;
+                return null;
+            }
+            if (currentReferences != null)
+            {
+                currentReferences.add(node.name);
+            }
+            if (!symbols.isDefined(symbols.id(node.name)))
             {
-                return true;
+                setError(node, ErrorCode.UNDEFINED_VARIABLE, "Variable used but undefined in current scope");
             }
+            return null;
+        }
+    }
+
+    /*
+     Computes the type of every expression when the walk leaves it, from the types of its operands,
+     and declares an assigned variable with the type of its expression. CH02 is the OperatorTable:
+     an operation on operands that do not fit has type UNDEFINED and an error. So every UNDEFINED type
+     comes with an error of its own, an undefined variable or such an operation, and the checks of the
+     nodes that use it do not report it again.
+     */
+    private class ComputeTypes implements ASTVisitor<Void>
+    {
+        //False for the walks that only compute the types again
+        private final boolean reportOperands;
+
+        ComputeTypes(boolean reportOperands)
+        {
+            this.reportOperands = reportOperands;
+        }
+
+        @Override
+        public Void visitVariableReference(VariableReference node)
+        {
+            if (node.getParent() instanceof VariableAssignment && ((VariableAssignment) node.getParent()).name == node)
+            {
+                return null;
+            }
+            ExpressionType type = symbols.typeOf(symbols.id(node.name));
+            types.put(node, type == null ? ExpressionType.UNDEFINED : type);
+            return null;
+        }
+
+        @Override
+        public Void visitOperation(Operation node)
+        {
+            ExpressionType lhs = types.get(node.lhs);
+            ExpressionType rhs = types.get(node.rhs);
+            if (lhs == null || rhs == null)
+            {
+                //Unknown, an operand is shared by scopes where it has different types
+                types.put(node, null);
+                return null;
+            }
+            ExpressionType type = OperatorTable.resultType(node.getOperator(), lhs, rhs);
+            if (reportOperands && type == ExpressionType.UNDEFINED && lhs != ExpressionType.UNDEFINED && rhs != ExpressionType.UNDEFINED)
+            {
+                setError(node, ErrorCode.INVALID_OPERANDS, "Operand types do not fit the operation");
+            }
+            types.put(node, type);
+            return null;
+        }
+
+        @Override
+        public Void visitVariableAssignment(VariableAssignment node)
+        {
+            symbols.declare(symbols.id(node.name.name), types.get(node.expression));
+            return null;
+        }
+    }
+
+    //CH03 in .g4
+
+    //CH04, the value must have one of the types the PropertySchema allows for the property.
+    //An UNDEFINED value is not reported again, it has an error of its own (see ComputeTypes).
+    private final ASTVisitor<Void> declarationValue = new ASTVisitor<Void>()
+    {
+        @Override
+        public Void visitDeclaration(Declaration node)
+        {
+            Set<ExpressionType> allowed = schema.getAllowedTypes(node.property.name);
+            ExpressionType type = types.get(node.expression);
+            if (allowed != null && type != null && type != ExpressionType.UNDEFINED && !allowed.contains(type))
+            {
+                setError(node, ErrorCode.INVALID_VALUE, schema.getMessage(node.property.name));
+            }
+            return null;
+        }
+    };
+
+    //CH05
+    private final ASTVisitor<Void> ifStatementHasBool = new ASTVisitor<Void>()
+    {
+        @Override
+        public Void visitIfClause(IfClause node)
+        {
+            Expression conditionalExpression = node.getConditionalExpression();
+            ExpressionType type = types.get(conditionalExpression);
+            //An undefined variable has an error of its own, an unknown type (null) is not checked
+            if (conditionalExpression instanceof VariableReference && type != null && type != ExpressionType.UNDEFINED
+                    && type != ExpressionType.BOOL)
+            {
+                setError(node, ErrorCode.NON_BOOLEAN_CONDITION, "If condition must be of type boolean");
+            }
+            return null;
+        }
+    };
+
+    private void setError(ASTNode node, ErrorCode code, String description)
+    {
+        if (pending != null)
+        {
+            pending.add(new PendingError(node, code, description, currentIndex));
+            return;
+        }
+        node.setError(description);
+        //A shared node has no parent to find the registry through, add each occurrence here
+        if (node.isShared())
+        {
+            errors.add(node, currentStatement);
+        }
+        if (listener != null)
+        {
+            listener.report(new Diagnostic(code, node, currentStatement, description));
         }
-        return false;
     }
 }
@@ -0,0 +1,90 @@
+package nl.han.ica.icss.checker;
+
+import nl.han.ica.icss.ast.ASTNode;
+import nl.han.ica.icss.ast.VariableAssignment;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * What the incremental Checker remembers of the top-level statements it checked: the variable
+ * names each statement references, the reverse index from a name to the statements that reference
+ * it, the name a global assignment defines and the structural hash of the statement at the time.
+ *
+ * Statements are compared by identity. A statement whose structural hash changed was edited in place.
+ */
+class DependencyIndex {
+
+    private final IdentityHashMap<ASTNode, Set<String>> references = new IdentityHashMap<>();
+    private final HashMap<String, Set<ASTNode>> dependents = new HashMap<>();
+    private final IdentityHashMap<ASTNode, String> definitions = new IdentityHashMap<>();
+    private final IdentityHashMap<ASTNode, Integer> hashes = new IdentityHashMap<>();
+
+    void put(ASTNode statement, Set<String> names) {
+        remove(statement);
+        references.put(statement, names);
+        for (String name : names) {
+            dependents.computeIfAbsent(name, key -> identitySet()).add(statement);
+        }
+        definitions.put(statement, definedName(statement));
+        hashes.put(statement, statement.structuralHash());
+    }
+
+    void remove(ASTNode statement) {
+        Set<String> names = references.remove(statement);
+        if (names == null)
+            return;
+        for (String name : names) {
+            Set<ASTNode> statements = dependents.get(name);
+            statements.remove(statement);
+            if (statements.isEmpty()) {
+                dependents.remove(name);
+            }
+        }
+        definitions.remove(statement);
+        hashes.remove(statement);
+    }
+
+    void clear() {
+        references.clear();
+        dependents.clear();
+        definitions.clear();
+        hashes.clear();
+    }
+
+    /*
+     True when the statement was checked and did not change since.
+     */
+    boolean isUnchanged(ASTNode statement) {
+        Integer hash = hashes.get(statement);
+        return hash != null && hash == statement.structuralHash();
+    }
+
+    Set<ASTNode> getStatements() {
+        return hashes.keySet();
+    }
+
+    Set<ASTNode> getDependents(String name) {
+        Set<ASTNode> statements = dependents.get(name);
+        return statements == null ? Collections.emptySet() : statements;
+    }
+
+    /*
+     The variable the statement assigned when it was checked, null for other statements.
+     */
+    String getDefinition(ASTNode statement) {
+        return definitions.get(statement);
+    }
+
+    static String definedName(ASTNode statement) {
+        if (statement instanceof VariableAssignment && ((VariableAssignment) statement).name != null)
+            return ((VariableAssignment) statement).name.name;
+        return null;
+    }
+
+    static Set<ASTNode> identitySet() {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+}
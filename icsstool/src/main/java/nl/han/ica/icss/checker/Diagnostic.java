@@ -0,0 +1,76 @@
+package nl.han.ica.icss.checker;
+
+import nl.han.ica.icss.ast.ASTNode;
+import nl.han.ica.icss.ast.Declaration;
+import nl.han.ica.icss.ast.IfClause;
+import nl.han.ica.icss.ast.Literal;
+import nl.han.ica.icss.ast.VariableReference;
+
+/**
+ * A semantic error as the Checker found it: the kind of error, the node it is set on and the
+ * top-level statement that contains the node. The description is the one of the SemanticError on
+ * the node, the message adds what the error is about and is only formatted when it is asked for.
+ */
+public class Diagnostic {
+
+    private final ErrorCode code;
+    private final ASTNode node;
+    private final ASTNode statement;
+    private final String description;
+    private String message;
+
+    public Diagnostic(ErrorCode code, ASTNode node, ASTNode statement, String description) {
+        this.code = code;
+        this.node = node;
+        this.statement = statement;
+        this.description = description;
+    }
+
+    public ErrorCode getCode() {
+        return code;
+    }
+
+    public ASTNode getNode() {
+        return node;
+    }
+
+    public ASTNode getStatement() {
+        return statement;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * @return the variable or literal the error is about, null when it is not known
+     */
+    public String getSubject() {
+        if (node instanceof Declaration)
+            return subjectOf(((Declaration) node).expression);
+        if (node instanceof IfClause)
+            return subjectOf(((IfClause) node).getConditionalExpression());
+        return subjectOf(node);
+    }
+
+    private static String subjectOf(ASTNode expression) {
+        if (expression instanceof VariableReference)
+            return ((VariableReference) expression).name;
+        if (expression instanceof Literal)
+            return expression.toString();
+        return null;
+    }
+
+    public String getMessage() {
+        if (message == null) {
+            String subject = getSubject();
+            message = subject == null ? description : description + ": " + subject;
+        }
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return "ERROR: " + getMessage();
+    }
+}
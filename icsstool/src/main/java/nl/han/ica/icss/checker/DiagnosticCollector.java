@@ -0,0 +1,127 @@
+package nl.han.ica.icss.checker;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A DiagnosticListener that keeps the errors it receives. Repeated errors, with the same code,
+ * description and subject, are one entry with a count, so a variable that is undefined in a
+ * thousand places is one entry. With a limit the check stops after that many errors.
+ */
+public class DiagnosticCollector implements DiagnosticListener {
+
+    //Stop after this many errors, 0 for no limit
+    private final int limit;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>();
+    private int errorCount = 0;
+
+    public DiagnosticCollector() {
+        this(0);
+    }
+
+    /**
+     * @param limit number of errors after which the check stops, 0 for no limit
+     */
+    public DiagnosticCollector(int limit) {
+        this.limit = limit;
+    }
+
+    @Override
+    public void report(Diagnostic diagnostic) {
+        //A statement is checked to its end, the errors after the limit are left out
+        if (isDone())
+            return;
+        errorCount++;
+        Key key = new Key(diagnostic.getCode(), diagnostic.getDescription(), diagnostic.getSubject());
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            entries.put(key, new Entry(diagnostic));
+        } else {
+            entry.count++;
+        }
+    }
+
+    @Override
+    public boolean isDone() {
+        return limit > 0 && errorCount >= limit;
+    }
+
+    public int getErrorCount() {
+        return errorCount;
+    }
+
+    /**
+     * @return one entry per distinct error, in the order the errors were first found
+     */
+    public List<Entry> getEntries() {
+        return new ArrayList<>(entries.values());
+    }
+
+    /**
+     * @return a line per entry, with the count of repeated errors and a note when the check stopped
+     */
+    public List<String> getMessages() {
+        List<String> messages = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            messages.add(entry.toString());
+        }
+        if (isDone()) {
+            messages.add("Stopped checking after " + limit + " errors");
+        }
+        return messages;
+    }
+
+    public void clear() {
+        entries.clear();
+        errorCount = 0;
+    }
+
+    public static class Entry {
+        private final Diagnostic first;
+        private int count = 1;
+
+        Entry(Diagnostic first) {
+            this.first = first;
+        }
+
+        public Diagnostic getFirst() {
+            return first;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        @Override
+        public String toString() {
+            return count == 1 ? first.toString() : first + " (" + count + " times)";
+        }
+    }
+
+    private static final class Key {
+        private final ErrorCode code;
+        private final String description;
+        private final String subject;
+
+        Key(ErrorCode code, String description, String subject) {
+            this.code = code;
+            this.description = description;
+            this.subject = subject;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return code == key.code && description.equals(key.description) && Objects.equals(subject, key.subject);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(code, description, subject);
+        }
+    }
+}
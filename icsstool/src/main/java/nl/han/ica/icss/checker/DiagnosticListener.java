@@ -0,0 +1,21 @@
+package nl.han.ica.icss.checker;
+
+/**
+ * Receives the semantic errors of a check one by one, while the Checker finds them.
+ *
+ * A sequential check reports the errors in source order. A parallel check reports them in source
+ * order too, each run of stylerules when its task is done. An incremental check only reports the
+ * errors of the statements it checks again, the kept errors were reported before.
+ */
+public interface DiagnosticListener {
+
+    void report(Diagnostic diagnostic);
+
+    /**
+     * Asked after every checked statement, the check stops when it returns true (fail-fast).
+     * The errors found up to then are still set on the nodes.
+     */
+    default boolean isDone() {
+        return false;
+    }
+}
@@ -0,0 +1,15 @@
+package nl.han.ica.icss.checker;
+
+/**
+ * The kinds of semantic errors the Checker reports.
+ */
+public enum ErrorCode {
+    //CH01 & CH06, the node is the VariableReference
+    UNDEFINED_VARIABLE,
+    //CH02, the node is the Operation
+    INVALID_OPERANDS,
+    //CH04, the node is the Declaration
+    INVALID_VALUE,
+    //CH05, the node is the IfClause
+    NON_BOOLEAN_CONDITION
+}
@@ -0,0 +1,102 @@
+package nl.han.ica.icss.checker;
+
+import nl.han.ica.icss.ast.types.ExpressionType;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Set;
+import java.util.StringJoiner;
+
+/**
+ * The CSS properties the Checker validates and the types of the values they take.
+ *
+ * The standard schema is read once from properties.schema next to this class. Every line has a
+ * property, a colon and the names of its ExpressionTypes, '#' starts a comment:
+ *     width: PIXEL PERCENTAGE
+ * The allowed types of a property are an EnumSet (a bit set indexed by the type), so validating
+ * a declaration is one lookup of its property name and one bit test.
+ * A new property only needs a line in the file.
+ */
+final class PropertySchema {
+
+    private static final String RESOURCE = "properties.schema";
+
+    private final HashMap<String, Set<ExpressionType>> properties = new HashMap<>();
+    //Error message per property, built once
+    private final HashMap<String, String> messages = new HashMap<>();
+
+    //Loaded on first use, by the class loader
+    private static class Standard {
+        static final PropertySchema SCHEMA = load();
+    }
+
+    static PropertySchema getStandard() {
+        return Standard.SCHEMA;
+    }
+
+    private static PropertySchema load() {
+        try (InputStream in = PropertySchema.class.getResourceAsStream(RESOURCE)) {
+            if (in == null)
+                throw new IllegalStateException(RESOURCE + " is missing");
+            return parse(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static PropertySchema parse(BufferedReader reader) throws IOException {
+        PropertySchema schema = new PropertySchema();
+        String line;
+        int number = 0;
+        while ((line = reader.readLine()) != null) {
+            number++;
+            int comment = line.indexOf('#');
+            if (comment >= 0) {
+                line = line.substring(0, comment);
+            }
+            line = line.trim();
+            if (line.isEmpty())
+                continue;
+            int colon = line.indexOf(':');
+            String[] names = line.substring(colon + 1).trim().split("\\s+");
+            if (colon <= 0 || names[0].isEmpty())
+                throw new IllegalArgumentException("Line " + number + " is not 'property: TYPE...': " + line);
+            EnumSet<ExpressionType> types = EnumSet.noneOf(ExpressionType.class);
+            for (String name : names) {
+                try {
+                    types.add(ExpressionType.valueOf(name));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Line " + number + " has an unknown type '" + name + "': " + line, e);
+                }
+            }
+            schema.put(line.substring(0, colon).trim(), types);
+        }
+        return schema;
+    }
+
+    private void put(String property, Set<ExpressionType> types) {
+        properties.put(property, types);
+        StringJoiner expected = new StringJoiner(" or ");
+        for (ExpressionType type : types) {
+            expected.add(type.name().toLowerCase(Locale.ROOT));
+        }
+        messages.put(property, "Expected " + expected + " value for " + property + " declaration");
+    }
+
+    /**
+     * @return the types a value of the property can have, null when the property is not in the schema
+     */
+    Set<ExpressionType> getAllowedTypes(String property) {
+        return properties.get(property);
+    }
+
+    String getMessage(String property) {
+        return messages.get(property);
+    }
+}
@@ -0,0 +1,106 @@
+package nl.han.ica.icss.checker;
+
+import nl.han.ica.icss.ast.types.ExpressionType;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Scoped symbol table for the types of variables.
+ *
+ * Every name is interned to a dense id once. The visible type of each id is kept in an array, so a
+ * lookup is O(1) whatever the number of scopes. A declaration remembers the type it hides in an undo
+ * log, and pop() restores those types in reverse order. Memory is bounded by the number of distinct
+ * names plus the declarations in the open scopes.
+ */
+class SymbolTable {
+
+    private final HashMap<String, Integer> ids = new HashMap<>();
+    //Visible type per id, null when the name is not defined in any open scope
+    private ExpressionType[] types = new ExpressionType[16];
+
+    //Id and hidden type of every declaration in an open scope, and where each scope starts in that log
+    private int[] undoIds = new int[16];
+    private ExpressionType[] undoTypes = new ExpressionType[16];
+    private int undoSize = 0;
+    private int[] scopeStarts = new int[4];
+    private int depth = 0;
+
+    SymbolTable() {
+    }
+
+    /*
+     A table with the global declarations of the other table, which must have no open scopes.
+     The tables do not share state, so they can be used on different threads.
+     */
+    SymbolTable(SymbolTable globals) {
+        if (globals.depth > 0)
+            throw new IllegalStateException("Only the global scope can be copied");
+        ids.putAll(globals.ids);
+        types = globals.types.clone();
+    }
+
+    /**
+     * @return the id of the name, the same for every call with an equal name
+     */
+    int id(String name) {
+        Integer id = ids.get(name);
+        if (id == null) {
+            id = ids.size();
+            ids.put(name, id);
+            if (id == types.length) {
+                types = Arrays.copyOf(types, id * 2);
+            }
+        }
+        return id;
+    }
+
+    void push() {
+        if (depth == scopeStarts.length) {
+            scopeStarts = Arrays.copyOf(scopeStarts, depth * 2);
+        }
+        scopeStarts[depth++] = undoSize;
+    }
+
+    /*
+     Forgets the declarations of the innermost scope, the global scope cannot be popped.
+     */
+    void pop() {
+        if (depth == 0)
+            throw new IllegalStateException("No scope to pop");
+        int start = scopeStarts[--depth];
+        while (undoSize > start) {
+            undoSize--;
+            types[undoIds[undoSize]] = undoTypes[undoSize];
+            undoTypes[undoSize] = null;
+        }
+    }
+
+    /*
+     Declares the variable in the innermost scope. An unknown type is stored as UNDEFINED,
+     the variable is still defined.
+     */
+    void declare(int id, ExpressionType type) {
+        if (depth > 0) {
+            if (undoSize == undoIds.length) {
+                undoIds = Arrays.copyOf(undoIds, undoSize * 2);
+                undoTypes = Arrays.copyOf(undoTypes, undoSize * 2);
+            }
+            undoIds[undoSize] = id;
+            undoTypes[undoSize] = types[id];
+            undoSize++;
+        }
+        types[id] = type == null ? ExpressionType.UNDEFINED : type;
+    }
+
+    boolean isDefined(int id) {
+        return types[id] != null;
+    }
+
+    /**
+     * @return the type of the innermost declaration of the variable, null when it is not defined
+     */
+    ExpressionType typeOf(int id) {
+        return types[id];
+    }
+}
@@ -0,0 +1,267 @@
+package nl.han.ica.icss.cli;
+
+import nl.han.ica.icss.cache.CompileCache;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Headless compiler for whole directory trees of .icss files.
+ *
+ * Usage: BatchCompiler [-o outputDir] [-j threads] [-c cacheDir] [-s cacheMegabytes] [-e maxErrors] source...
+ *
+ * Every source is either an .icss file or a directory that is searched recursively.
+ * The generated CSS is written next to the input (foo.icss becomes foo.css), or into
+ * the output directory with the same relative layout as the source tree.
+ *
+ * Files are compiled on a work-stealing fork-join pool, largest files first, so one big
+ * stylesheet does not end up at the tail of the run. Results are reported in path order,
+ * which makes the output on stdout identical for any number of threads. Timing goes to stderr.
+ *
+ * With a cache directory, results of unchanged inputs are taken from the on-disk CompileCache.
+ * With a maximum number of errors the check of a file stops after that many semantic errors,
+ * which keeps the validation of broken inputs short. Repeated errors are reported once with a count.
+ */
+public class BatchCompiler {
+
+    //The largest -s that does not overflow as a number of bytes
+    static final long MAX_CACHE_MEGABYTES = Long.MAX_VALUE / (1024 * 1024);
+
+    private final Path outputDirectory;
+    private final int threads;
+    private final PrintStream out;
+    private final PrintStream err;
+
+    private final CompileCache cache;
+    private final ThreadLocal<FileCompiler> compilers;
+    //Every compiler created by the threads, for the parse statistics
+    private final List<FileCompiler> created = new CopyOnWriteArrayList<>();
+
+    public BatchCompiler(Path outputDirectory, int threads, PrintStream out, PrintStream err) {
+        this(outputDirectory, threads, null, out, err);
+    }
+
+    public BatchCompiler(Path outputDirectory, int threads, CompileCache cache, PrintStream out, PrintStream err) {
+        this(outputDirectory, threads, cache, 0, out, err);
+    }
+
+    /**
+     * @param maxErrors number of semantic errors after which the check of a file stops, 0 for no limit
+     */
+    public BatchCompiler(Path outputDirectory, int threads, CompileCache cache, int maxErrors, PrintStream out, PrintStream err) {
+        if (threads <= 0)
+            throw new IllegalArgumentException("Number of threads must be positive: " + threads);
+        this.outputDirectory = outputDirectory;
+        this.threads = threads;
+        this.cache = cache;
+        this.out = out;
+        this.err = err;
+        compilers = ThreadLocal.withInitial(() -> {
+            FileCompiler compiler = new FileCompiler(cache, maxErrors);
+            created.add(compiler);
+            return compiler;
+        });
+    }
+
+    public static void main(String[] args) {
+        Path outputDirectory = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Path cacheDirectory = null;
+        long cacheMegabytes = 256;
+        int maxErrors = 0;
+        List<Path> sources = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-o") && i + 1 < args.length) {
+                outputDirectory = Paths.get(args[++i]);
+            } else if (args[i].equals("-j") && i + 1 < args.length) {
+                threads = (int) parseNumber(args[++i], 1, Integer.MAX_VALUE);
+                if (threads < 0) {
+                    System.err.println("-j needs a positive number of threads: " + args[i]);
+                    usage();
+                    return;
+                }
+            } else if (args[i].equals("-c") && i + 1 < args.length) {
+                cacheDirectory = Paths.get(args[++i]);
+            } else if (args[i].equals("-s") && i + 1 < args.length) {
+                cacheMegabytes = parseNumber(args[++i], 1, MAX_CACHE_MEGABYTES);
+                if (cacheMegabytes < 0) {
+                    System.err.println("-s needs a number of megabytes between 1 and " + MAX_CACHE_MEGABYTES + ": " + args[i]);
+                    usage();
+                    return;
+                }
+            } else if (args[i].equals("-e") && i + 1 < args.length) {
+                maxErrors = (int) parseNumber(args[++i], 0, Integer.MAX_VALUE);
+                if (maxErrors < 0) {
+                    System.err.println("-e needs a number of errors, 0 for no limit: " + args[i]);
+                    usage();
+                    return;
+                }
+            } else if (args[i].startsWith("-")) {
+                usage();
+                return;
+            } else {
+                sources.add(Paths.get(args[i]));
+            }
+        }
+        if (sources.isEmpty()) {
+            usage();
+            return;
+        }
+
+        CompileCache cache = null;
+        if (cacheDirectory != null) {
+            try {
+                cache = new CompileCache(cacheDirectory, cacheMegabytes * 1024 * 1024);
+            } catch (IOException e) {
+                System.err.println("Cache disabled: " + e.getMessage());
+            }
+        }
+
+        BatchCompiler compiler = new BatchCompiler(outputDirectory, threads, cache, maxErrors, System.out, System.err);
+        int failed = compiler.compile(sources);
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+    /*
+     The value of a numeric option, -1 when it is not a number from min to max.
+     */
+    static long parseNumber(String value, long min, long max) {
+        try {
+            long number = Long.parseLong(value);
+            return number >= min && number <= max ? number : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static void usage() {
+        System.err.println("Usage: BatchCompiler [-o outputDir] [-j threads] [-c cacheDir] [-s cacheMegabytes] [-e maxErrors] source...");
+        System.exit(2);
+    }
+
+    /**
+     * Compiles all .icss files found in the given sources.
+     * @return the number of files that failed to compile
+     */
+    public int compile(List<Path> sources) {
+        List<Job> jobs = collectJobs(sources);
+
+        //Schedule the largest files first, the pool steals the remaining work
+        List<Job> schedule = new ArrayList<>(jobs);
+        schedule.sort(Comparator.comparingLong((Job job) -> job.size).reversed());
+
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            for (Job job : schedule) {
+                job.task = pool.submit(() -> compile(job));
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        //Report in path order, independent of the order in which files finished
+        int failed = 0;
+        long bytes = 0;
+        for (Job job : jobs) {
+            CompileResult result = job.task.join();
+            bytes += result.getSize();
+            if (!result.isSucceeded()) {
+                failed++;
+            }
+            for (String error : result.getErrors()) {
+                out.println(result.getInput() + ": " + error);
+            }
+        }
+        long elapsed = Math.max(1, System.nanoTime() - start);
+
+        out.println("Compiled " + jobs.size() + " file(s), " + failed + " failed");
+        double seconds = elapsed / 1e9;
+        err.printf("%d bytes in %.3f s (%.1f files/s, %.2f MB/s) on %d thread(s)%n",
+                bytes, seconds, jobs.size() / seconds, bytes / seconds / (1024 * 1024), threads);
+        long sllParses = 0;
+        long llFallbacks = 0;
+        for (FileCompiler compiler : created) {
+            sllParses += compiler.getSllParseCount();
+            llFallbacks += compiler.getLlFallbackCount();
+        }
+        err.printf("%d SLL parse(s), %d LL fallback(s)%n", sllParses, llFallbacks);
+        if (cache != null) {
+            err.println("Cache: " + cache);
+        }
+        return failed;
+    }
+
+    private CompileResult compile(Job job) {
+        CompileResult result = compilers.get().compile(job.input);
+        if (result.isSucceeded()) {
+            try {
+                OutputFiles.writeAtomically(job.target, result.getCss());
+            } catch (IOException e) {
+                List<String> errors = new ArrayList<>(result.getErrors());
+                errors.add("I/O error: " + e.getMessage());
+                return new CompileResult(job.input, null, errors, result.getSize());
+            }
+        }
+        return result;
+    }
+
+    private List<Job> collectJobs(List<Path> sources) {
+        List<Job> jobs = new ArrayList<>();
+        for (Path source : sources) {
+            Path root = Files.isDirectory(source) ? source : source.getParent();
+            for (Path input : listSources(source)) {
+                Path target = OutputFiles.targetOf(root, input, outputDirectory);
+                long size;
+                try {
+                    size = Files.size(input);
+                } catch (IOException e) {
+                    size = 0;
+                }
+                jobs.add(new Job(input, target, size));
+            }
+        }
+        return jobs;
+    }
+
+    private List<Path> listSources(Path source) {
+        if (!Files.isDirectory(source)) {
+            List<Path> single = new ArrayList<>();
+            single.add(source);
+            return single;
+        }
+        try (Stream<Path> paths = Files.walk(source)) {
+            return paths.filter(path -> OutputFiles.isSource(path) && Files.isRegularFile(path))
+                    .sorted()
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            err.println(source + ": " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    private static class Job {
+        final Path input;
+        final Path target;
+        final long size;
+        ForkJoinTask<CompileResult> task;
+
+        Job(Path input, Path target, long size) {
+            this.input = input;
+            this.target = target;
+            this.size = size;
+        }
+    }
+}
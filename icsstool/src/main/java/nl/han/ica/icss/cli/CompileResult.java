@@ -0,0 +1,39 @@
+package nl.han.ica.icss.cli;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * The outcome of compiling a single ICSS file: the generated CSS (or null when compilation failed)
+ * and the errors reported by the pipeline.
+ */
+public class CompileResult {
+
+    private final Path input;
+    private final String css;
+    private final List<String> errors;
+    private final long size;
+
+    public CompileResult(Path input, String css, List<String> errors, long size) {
+        this.input = input;
+        this.css = css;
+        this.errors = errors;
+        this.size = size;
+    }
+
+    public Path getInput() {
+        return input;
+    }
+    public String getCss() {
+        return css;
+    }
+    public List<String> getErrors() {
+        return errors;
+    }
+    public long getSize() {
+        return size;
+    }
+    public boolean isSucceeded() {
+        return css != null && errors.isEmpty();
+    }
+}
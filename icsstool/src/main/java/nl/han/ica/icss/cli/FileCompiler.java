@@ -0,0 +1,131 @@
+package nl.han.ica.icss.cli;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.cache.CompileCache;
+import nl.han.ica.icss.cache.CompilerFingerprint;
+import nl.han.ica.icss.checker.DiagnosticCollector;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs all pipeline stages (parse, check, transform, generate) on a single file.
+ * Repeated semantic errors are reported once with a count, and with a limit the check of a file
+ * stops after that many errors.
+ * A FileCompiler is not thread safe, use one instance per thread.
+ */
+public class FileCompiler {
+
+    private final Pipeline pipeline;
+    private final CompileCache cache;
+    private final int maxErrors;
+    private final DiagnosticCollector diagnostics;
+
+    public FileCompiler() {
+        this(null);
+    }
+
+    public FileCompiler(CompileCache cache) {
+        this(cache, 0);
+    }
+
+    /**
+     * @param cache compile cache to consult before running the pipeline, or null
+     * @param maxErrors number of semantic errors after which the check of a file stops, 0 for no limit
+     */
+    public FileCompiler(CompileCache cache, int maxErrors) {
+        this.cache = cache;
+        this.maxErrors = maxErrors;
+        diagnostics = new DiagnosticCollector(maxErrors);
+        pipeline = new Pipeline();
+        pipeline.setBuildParseTree(false);
+        pipeline.setPackedLexer(true);
+        pipeline.setDiagnosticListener(diagnostics);
+    }
+
+    /**
+     * @return the options that change the result of a compile, part of the cache key
+     */
+    public List<String> getOptions() {
+        List<String> options = new ArrayList<>(pipeline.getTransformNames());
+        //The limit changes the reported errors
+        options.add("maxErrors=" + maxErrors);
+        return options;
+    }
+
+    //Parse statistics of the pipeline of this compiler, see Pipeline.getSllParseCount
+    public long getSllParseCount() {
+        return pipeline.getSllParseCount();
+    }
+    public long getLlFallbackCount() {
+        return pipeline.getLlFallbackCount();
+    }
+
+    /**
+     * Compiles a file. Without a cache it is parsed through a memory mapping. With a cache it is read
+     * once and the same bytes are hashed for the key and parsed, so a file that changes meanwhile
+     * cannot store the result of its new contents under the key of the old ones.
+     */
+    public CompileResult compile(Path input) {
+        if (cache != null) {
+            byte[] source;
+            try {
+                source = Files.readAllBytes(input);
+            } catch (IOException e) {
+                return failedToRead(input, e);
+            }
+            return compile(input, source);
+        }
+
+        long size;
+        try {
+            size = Files.size(input);
+            pipeline.parseFile(input);
+        } catch (IOException e) {
+            return failedToRead(input, e);
+        }
+        return compileParsed(input, null, size);
+    }
+
+    private static CompileResult failedToRead(Path input, IOException e) {
+        List<String> errors = new ArrayList<>();
+        errors.add("I/O error: " + e.getMessage());
+        return new CompileResult(input, null, errors, 0);
+    }
+
+    /**
+     * Compiles the contents of a file that were already read, for example a copy of a file that
+     * an editor may still be writing. The path only names the result.
+     */
+    public CompileResult compile(Path input, byte[] source) {
+        String key = null;
+        if (cache != null) {
+            key = CompileCache.key(source, CompilerFingerprint.get(), getOptions());
+            CompileCache.Entry entry = cache.get(key);
+            if (entry != null) {
+                return new CompileResult(input, entry.css, entry.errors, source.length);
+            }
+        }
+        pipeline.parseString(new String(source, StandardCharsets.UTF_8));
+        return compileParsed(input, key, source.length);
+    }
+
+    private CompileResult compileParsed(Path input, String key, long size) {
+        String css = null;
+        diagnostics.clear();
+        if (pipeline.isParsed() && pipeline.check()) {
+            pipeline.transform();
+            css = pipeline.generate();
+        }
+        List<String> errors = new ArrayList<>(pipeline.getErrors());
+        errors.addAll(diagnostics.getMessages());
+        if (key != null) {
+            cache.put(key, new CompileCache.Entry(css, errors));
+        }
+        return new CompileResult(input, css, errors, size);
+    }
+}
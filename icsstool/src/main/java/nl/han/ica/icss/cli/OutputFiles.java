@@ -0,0 +1,65 @@
+package nl.han.ica.icss.cli;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Where generated CSS goes and how it is written.
+ */
+public class OutputFiles {
+
+    public static final String SOURCE_EXTENSION = ".icss";
+    public static final String TARGET_EXTENSION = ".css";
+
+    private OutputFiles() {
+    }
+
+    public static boolean isSource(Path path) {
+        return path.toString().endsWith(SOURCE_EXTENSION);
+    }
+
+    /**
+     * The CSS file for an input: next to it when there is no output directory, otherwise at the same
+     * place relative to the output directory as the input is relative to its source root.
+     */
+    public static Path targetOf(Path root, Path input, Path outputDirectory) {
+        String name = input.getFileName().toString();
+        if (name.endsWith(SOURCE_EXTENSION)) {
+            name = name.substring(0, name.length() - SOURCE_EXTENSION.length());
+        }
+        name += TARGET_EXTENSION;
+
+        if (outputDirectory == null) {
+            return input.resolveSibling(name);
+        }
+        Path relative = root == null ? input.getFileName() : root.relativize(input);
+        return outputDirectory.resolve(relative).resolveSibling(name);
+    }
+
+    /**
+     * Writes the CSS to a temporary file next to the target and moves it into place, so readers
+     * never see a half written file.
+     */
+    public static void writeAtomically(Path target, String css) throws IOException {
+        Path directory = target.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+        try {
+            Files.writeString(temporary, css, StandardCharsets.UTF_8);
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Removes the CSS of a source that no longer exists.
+     * @return true when there was a file to remove
+     */
+    public static boolean delete(Path target) throws IOException {
+        return Files.deleteIfExists(target);
+    }
+}
@@ -0,0 +1,246 @@
+package nl.han.ica.icss.cli;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Long-running watch mode: compiles all .icss files below the watched directories once,
+ * then recompiles only the files that change.
+ *
+ * Usage: WatchDaemon [-o outputDir] [-d debounceMillis] directory...
+ *
+ * Filesystem events are collected until no new event arrived for the debounce period, so the
+ * burst of events of a single save results in one rebuild of each changed file. A file is compiled
+ * from a copy that did not change while it was read and that is at least one debounce period old,
+ * a file that an editor is still writing is retried after the next period. Every watched file keeps
+ * its own warm pipeline (with its lexer and parser), outputs are written atomically and removed
+ * together with their source.
+ */
+public class WatchDaemon {
+
+    private final List<Path> roots;
+    private final Path outputDirectory;
+    private final long debounceMillis;
+    private final PrintStream out;
+
+    private final WatchService watcher;
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+    private final Map<Path, FileCompiler> compilers = new HashMap<>();
+
+    public WatchDaemon(List<Path> roots, Path outputDirectory, long debounceMillis, PrintStream out) throws IOException {
+        if (debounceMillis < 0)
+            throw new IllegalArgumentException("Debounce period must not be negative: " + debounceMillis);
+        this.roots = new ArrayList<>();
+        for (Path root : roots) {
+            this.roots.add(root.toAbsolutePath().normalize());
+        }
+        this.outputDirectory = outputDirectory;
+        this.debounceMillis = debounceMillis;
+        this.out = out;
+        this.watcher = FileSystems.getDefault().newWatchService();
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path outputDirectory = null;
+        long debounceMillis = 50;
+        List<Path> roots = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-o") && i + 1 < args.length) {
+                outputDirectory = Paths.get(args[++i]);
+            } else if (args[i].equals("-d") && i + 1 < args.length) {
+                debounceMillis = BatchCompiler.parseNumber(args[++i], 0, Long.MAX_VALUE);
+                if (debounceMillis < 0) {
+                    System.err.println("-d needs a number of milliseconds: " + args[i]);
+                    usage();
+                }
+            } else if (args[i].startsWith("-")) {
+                usage();
+            } else {
+                roots.add(Paths.get(args[i]));
+            }
+        }
+        if (roots.isEmpty()) {
+            usage();
+        }
+
+        new WatchDaemon(roots, outputDirectory, debounceMillis, System.out).run();
+    }
+
+    private static void usage() {
+        System.err.println("Usage: WatchDaemon [-o outputDir] [-d debounceMillis] directory...");
+        System.exit(2);
+    }
+
+    /**
+     * Builds everything once and then watches until the thread is interrupted.
+     */
+    public void run() throws IOException, InterruptedException {
+        Set<Path> pending = new TreeSet<>();
+        for (Path root : roots) {
+            pending.addAll(register(root));
+        }
+        pending = build(pending);
+
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                //Block while idle, after an event only wait for the rest of the burst
+                WatchKey key = pending.isEmpty() ? watcher.take() : watcher.poll(debounceMillis, TimeUnit.MILLISECONDS);
+                if (key == null) {
+                    pending = build(pending);
+                    continue;
+                }
+                collect(key, pending);
+            }
+        } finally {
+            watcher.close();
+        }
+    }
+
+    private void collect(WatchKey key, Set<Path> pending) throws IOException {
+        Path directory = directories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                //Events were lost, look at everything again
+                for (Path root : roots) {
+                    pending.addAll(register(root));
+                }
+                continue;
+            }
+            if (directory == null)
+                continue;
+
+            Path path = directory.resolve((Path) event.context());
+            if (event.kind() == ENTRY_CREATE && Files.isDirectory(path)) {
+                pending.addAll(register(path));
+            } else if (event.kind() == ENTRY_DELETE) {
+                //A source or a directory with sources, build removes their outputs
+                pending.add(path);
+            } else if (OutputFiles.isSource(path)) {
+                pending.add(path);
+            }
+        }
+        if (!key.reset()) {
+            directories.remove(key);
+        }
+    }
+
+    /*
+     Compiles the changed files and removes the outputs of the deleted ones.
+     Returns the files that were still being written, to be built after the next debounce period.
+     */
+    private Set<Path> build(Set<Path> changed) {
+        Set<Path> unstable = new TreeSet<>();
+        for (Path input : changed) {
+            if (Files.notExists(input)) {
+                removeOutputs(input);
+                continue;
+            }
+            if (!Files.isRegularFile(input))
+                continue;
+
+            long start = System.nanoTime();
+            byte[] source;
+            try {
+                source = readStable(input);
+            } catch (IOException e) {
+                out.println(input + ": I/O error: " + e.getMessage());
+                continue;
+            }
+            if (source == null) {
+                unstable.add(input);
+                continue;
+            }
+            CompileResult result = compilers.computeIfAbsent(input, path -> new FileCompiler()).compile(input, source);
+            if (result.isSucceeded()) {
+                try {
+                    OutputFiles.writeAtomically(OutputFiles.targetOf(rootOf(input), input, outputDirectory), result.getCss());
+                } catch (IOException e) {
+                    out.println(input + ": I/O error: " + e.getMessage());
+                    continue;
+                }
+            }
+            for (String error : result.getErrors()) {
+                out.println(input + ": " + error);
+            }
+            long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+            out.printf("%s %s in %.1f ms%n", result.isSucceeded() ? "Compiled" : "Failed", input, micros / 1000.0);
+        }
+        return unstable;
+    }
+
+    /*
+     Reads the file unless it is still being written: its size and modification time must not change
+     during the read, and it must not have been modified in the last debounce period.
+     Returns null otherwise.
+     */
+    private byte[] readStable(Path input) throws IOException {
+        BasicFileAttributes before = Files.readAttributes(input, BasicFileAttributes.class);
+        long age = System.currentTimeMillis() - before.lastModifiedTime().toMillis();
+        if (age >= 0 && age < debounceMillis)
+            return null;
+        byte[] source = Files.readAllBytes(input);
+        BasicFileAttributes after = Files.readAttributes(input, BasicFileAttributes.class);
+        if (source.length != after.size() || before.size() != after.size()
+                || !before.lastModifiedTime().equals(after.lastModifiedTime()))
+            return null;
+        return source;
+    }
+
+    /*
+     Removes the CSS of a deleted source, or of all sources below a deleted directory.
+     */
+    private void removeOutputs(Path deleted) {
+        Iterator<Path> inputs = compilers.keySet().iterator();
+        while (inputs.hasNext()) {
+            Path input = inputs.next();
+            if (!input.startsWith(deleted))
+                continue;
+            inputs.remove();
+            try {
+                if (OutputFiles.delete(OutputFiles.targetOf(rootOf(input), input, outputDirectory))) {
+                    out.println("Removed output of " + input);
+                }
+            } catch (IOException e) {
+                out.println(input + ": I/O error: " + e.getMessage());
+            }
+        }
+    }
+
+    /*
+     Watches the directory tree and returns the sources in it. A directory is watched before it is
+     listed, so a file created in between is seen by the listing or by an event.
+     */
+    private List<Path> register(Path start) throws IOException {
+        List<Path> sources = new ArrayList<>();
+        if (Files.isDirectory(start)) {
+            directories.put(start.register(watcher, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), start);
+            List<Path> children;
+            try (Stream<Path> paths = Files.list(start)) {
+                children = paths.sorted().collect(Collectors.toList());
+            }
+            for (Path child : children) {
+                sources.addAll(register(child));
+            }
+        } else if (OutputFiles.isSource(start)) {
+            sources.add(start);
+        }
+        return sources;
+    }
+
+    private Path rootOf(Path input) {
+        for (Path root : roots) {
+            if (input.startsWith(root))
+                return root;
+        }
+        return input.getParent();
+    }
+}
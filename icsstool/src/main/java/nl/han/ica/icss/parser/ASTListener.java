@@ -1,5 +1,7 @@
 package nl.han.ica.icss.parser;
 
+        import java.util.ArrayList;
+        import java.util.List;
         import java.util.Stack;
 
         import jdk.jshell.spi.ExecutionControlProvider;
@@ -12,11 +14,14 @@ package nl.han.ica.icss.parser;
         import nl.han.ica.icss.ast.selectors.IdSelector;
         import nl.han.ica.icss.ast.selectors.TagSelector;
         import org.antlr.v4.runtime.ParserRuleContext;
+        import org.antlr.v4.runtime.misc.Interval;
         import org.antlr.v4.runtime.tree.ErrorNode;
         import org.antlr.v4.runtime.tree.TerminalNode;
 
 /**
  * This class extracts the ICSS Abstract Syntax Tree from the Antlr Parse tree.
+ * It can also be registered as parse listener (Parser.addParseListener) to build the
+ * AST while parsing, without constructing the parse tree at all.
  */
 public class ASTListener extends ICSSBaseListener
 {
@@ -27,10 +32,31 @@ public class ASTListener extends ICSSBaseListener
     //Use this to keep track of the parent nodes when recursively traversing the ast
     private Stack<ASTNode> currentContainer;
 
+    //Character ranges of the top-level statements, in the same order as the stylesheet body
+    private List<Interval> statementIntervals;
+
+    //Shares identical subtrees when set
+    private NodeInterner interner;
+
     public ASTListener()
+    {
+        this(null);
+    }
+
+    /**
+     * @param interner factory that replaces identical subtrees by a shared instance, or null
+     */
+    public ASTListener(NodeInterner interner)
     {
         ast = new AST();
         currentContainer = new Stack<>();
+        statementIntervals = new ArrayList<>();
+        this.interner = interner;
+    }
+
+    private <T extends ASTNode> T intern(T node)
+    {
+        return interner == null ? node : interner.intern(node);
     }
 
     public AST getAST()
@@ -38,6 +64,19 @@ public class ASTListener extends ICSSBaseListener
         return ast;
     }
 
+    public List<Interval> getStatementIntervals()
+    {
+        return statementIntervals;
+    }
+
+    private void addStatementInterval(ParserRuleContext ctx)
+    {
+        if (ctx.getStart() != null && ctx.getStop() != null)
+        {
+            statementIntervals.add(Interval.of(ctx.getStart().getStartIndex(), ctx.getStop().getStopIndex()));
+        }
+    }
+
     @Override
     public void enterStylesheet(ICSSParser.StylesheetContext ctx)
     {
@@ -57,13 +96,14 @@ public class ASTListener extends ICSSBaseListener
     @Override
     public void exitStylerule(ICSSParser.StyleruleContext ctx)
     {
+        addStatementInterval(ctx);
         this.currentContainer.pop();
     }
 
     @Override
     public void enterTagSelector(ICSSParser.TagSelectorContext ctx)
     {
-        Selector tagSelecter = new TagSelector(ctx.getText());
+        Selector tagSelecter = intern(new TagSelector(ctx.getStart().getText()));
         this.currentContainer.peek().addChild(tagSelecter);
         this.currentContainer.push(tagSelecter);
     }
@@ -77,7 +117,7 @@ public class ASTListener extends ICSSBaseListener
     @Override
     public void enterClassSelector(ICSSParser.ClassSelectorContext ctx)
     {
-        Selector classSelector = new ClassSelector(ctx.getText());
+        Selector classSelector = intern(new ClassSelector(ctx.getStart().getText()));
         this.currentContainer.peek().addChild(classSelector);
         this.currentContainer.push(classSelector);
     }
@@ -91,7 +131,7 @@ public class ASTListener extends ICSSBaseListener
     @Override
     public void enterIdSelector(ICSSParser.IdSelectorContext ctx)
     {
-        Selector idSelector = new IdSelector(ctx.getText());
+        Selector idSelector = intern(new IdSelector(ctx.getStart().getText()));
         this.currentContainer.peek().addChild(idSelector);
         this.currentContainer.push(idSelector);
     }
@@ -104,7 +144,7 @@ public class ASTListener extends ICSSBaseListener
 
     public void enterDeclaration(ICSSParser.DeclarationContext ctx)
     {
-        Declaration declaration = new Declaration(ctx.getText());
+        Declaration declaration = new Declaration();
         this.currentContainer.peek().addChild(declaration);
         this.currentContainer.push(declaration);
     }
@@ -112,13 +152,18 @@ public class ASTListener extends ICSSBaseListener
     @Override
     public void exitDeclaration(ICSSParser.DeclarationContext ctx)
     {
-        this.currentContainer.pop();
+        ASTNode declaration = this.currentContainer.pop();
+        ASTNode shared = intern(declaration);
+        if (shared != declaration)
+        {
+            this.currentContainer.peek().replaceChild(declaration, shared);
+        }
     }
 
     @Override
     public void enterPropertyName(ICSSParser.PropertyNameContext ctx)
     {
-        PropertyName propertyName = new PropertyName(ctx.getText());
+        PropertyName propertyName = intern(new PropertyName(ctx.getStart().getText()));
         this.currentContainer.peek().addChild(propertyName);
         this.currentContainer.push(propertyName);
     }
@@ -152,13 +197,17 @@ public class ASTListener extends ICSSBaseListener
     @Override
     public void exitVariableAssignment(ICSSParser.VariableAssignmentContext ctx)
     {
+        if (ctx.getParent() instanceof ICSSParser.StylesheetContext)
+        {
+            addStatementInterval(ctx);
+        }
         this.currentContainer.pop();
     }
 
     @Override
     public void enterVariableReference(ICSSParser.VariableReferenceContext ctx)
     {
-        VariableReference variableReference = new VariableReference(ctx.getText());
+        VariableReference variableReference = new VariableReference(ctx.getStart().getText());
         this.currentContainer.peek().addChild(variableReference);
         this.currentContainer.push(variableReference);
     }
@@ -172,7 +221,7 @@ public class ASTListener extends ICSSBaseListener
     @Override
     public void enterColorLiteral(ICSSParser.ColorLiteralContext ctx)
     {
-        ColorLiteral colorLiteral = new ColorLiteral(ctx.getText());
+        ColorLiteral colorLiteral = intern(new ColorLiteral(ctx.getStart().getText()));
         this.currentContainer.peek().addChild(colorLiteral);
         this.currentContainer.push(colorLiteral);
     }
@@ -186,7 +235,7 @@ public class ASTListener extends ICSSBaseListener
     @Override
     public void enterBoolLiteral(ICSSParser.BoolLiteralContext ctx)
     {
-        BoolLiteral boolLiteral = new BoolLiteral(ctx.getText());
+        BoolLiteral boolLiteral = intern(new BoolLiteral(ctx.getStart().getText()));
         currentContainer.peek().addChild(boolLiteral);
         currentContainer.push(boolLiteral);
     }
@@ -200,7 +249,7 @@ public class ASTListener extends ICSSBaseListener
     @Override
     public void enterPercentageLiteral(ICSSParser.PercentageLiteralContext ctx)
     {
-        PercentageLiteral percentageLiteral = new PercentageLiteral(ctx.getText());
+        PercentageLiteral percentageLiteral = intern(new PercentageLiteral(ctx.getStart().getText()));
         this.currentContainer.peek().addChild(percentageLiteral);
         this.currentContainer.push(percentageLiteral);
     }
@@ -214,7 +263,7 @@ public class ASTListener extends ICSSBaseListener
     @Override
     public void enterScalarLiteral(ICSSParser.ScalarLiteralContext ctx)
     {
-        ScalarLiteral scalarLiteral = new ScalarLiteral(ctx.getText());
+        ScalarLiteral scalarLiteral = intern(new ScalarLiteral(ctx.getStart().getText()));
         this.currentContainer.peek().addChild(scalarLiteral);
         this.currentContainer.push(scalarLiteral);
     }
@@ -228,7 +277,7 @@ public class ASTListener extends ICSSBaseListener
     @Override
     public void enterPixelLiteral(ICSSParser.PixelLiteralContext ctx)
     {
-        PixelLiteral pixelLiteral = new PixelLiteral(ctx.getText());
+        PixelLiteral pixelLiteral = intern(new PixelLiteral(ctx.getStart().getText()));
         this.currentContainer.peek().addChild(pixelLiteral);
         this.currentContainer.push(pixelLiteral);
     }
@@ -239,12 +288,29 @@ public class ASTListener extends ICSSBaseListener
         this.currentContainer.pop();
     }
 
+    private void enterOperation(ParserRuleContext ctx, Operation operation)
+    {
+        ASTNode container = this.currentContainer.peek();
+        if (ctx.getStop() == null)
+        {
+            //Used as parse listener: the left operand of a left-recursive alternative is
+            //built before the operation is entered, so move it from the container
+            int count = container.getChildCount();
+            if (count > 0)
+            {
+                ASTNode lhs = container.getChild(count - 1);
+                container.removeChild(lhs);
+                operation.addChild(lhs);
+            }
+        }
+        container.addChild(operation);
+        this.currentContainer.push(operation);
+    }
+
     @Override
     public void enterMultiplyOperation(ICSSParser.MultiplyOperationContext ctx)
     {
-        MultiplyOperation multiplyOperation = new MultiplyOperation();
-        this.currentContainer.peek().addChild(multiplyOperation);
-        this.currentContainer.push(multiplyOperation);
+        enterOperation(ctx, new MultiplyOperation());
     }
 
     @Override
@@ -256,9 +322,7 @@ public class ASTListener extends ICSSBaseListener
     @Override
     public void enterAddOperation(ICSSParser.AddOperationContext ctx)
     {
-        AddOperation addOperation = new AddOperation();
-        this.currentContainer.peek().addChild(addOperation);
-        this.currentContainer.push(addOperation);
+        enterOperation(ctx, new AddOperation());
     }
 
     @Override
@@ -270,9 +334,7 @@ public class ASTListener extends ICSSBaseListener
     @Override
     public void enterSubtractOperation(ICSSParser.SubtractOperationContext ctx)
     {
-        SubtractOperation subtractOperation = new SubtractOperation();
-        this.currentContainer.peek().addChild(subtractOperation);
-        this.currentContainer.push(subtractOperation);
+        enterOperation(ctx, new SubtractOperation());
     }
 
     @Override
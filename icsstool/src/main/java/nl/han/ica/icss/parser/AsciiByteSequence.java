@@ -0,0 +1,51 @@
+package nl.han.ica.icss.parser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An ASCII encoded ByteBuffer (for example a memory-mapped file) seen as a CharSequence,
+ * one byte per character, without decoding it into a String.
+ */
+public class AsciiByteSequence implements CharSequence {
+
+    private final ByteBuffer bytes;
+
+    public AsciiByteSequence(ByteBuffer bytes) {
+        this.bytes = bytes;
+    }
+
+    /*
+     True when every byte in the buffer is 7 bit ASCII (and also valid UTF-8 with the same meaning).
+     */
+    public static boolean isAscii(ByteBuffer bytes) {
+        for (int i = bytes.position(); i < bytes.limit(); i++) {
+            if (bytes.get(i) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int length() {
+        return bytes.remaining();
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) bytes.get(bytes.position() + index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new AsciiByteSequence(bytes.slice(bytes.position() + start, end - start));
+    }
+
+    @Override
+    public String toString() {
+        byte[] text = new byte[bytes.remaining()];
+        bytes.duplicate().get(text);
+        return new String(text, StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,96 @@
+package nl.han.ica.icss.parser;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.misc.Interval;
+
+/**
+ * A CharStream that reads straight from a CharSequence, without copying the characters
+ * into a code point array like CharStreams.fromString does.
+ *
+ * Positions are char indexes, characters outside the BMP are seen as two surrogates.
+ * That is fine for ICSS, where every valid token is ASCII.
+ */
+public class CharSequenceCharStream implements CharStream {
+
+    private final CharSequence data;
+    private final String name;
+    private int position = 0;
+
+    public CharSequenceCharStream(CharSequence data) {
+        this(data, IntStream.UNKNOWN_SOURCE_NAME);
+    }
+
+    public CharSequenceCharStream(CharSequence data, String name) {
+        this.data = data;
+        this.name = name;
+    }
+
+    @Override
+    public String getText(Interval interval) {
+        int start = interval.a;
+        int stop = Math.min(interval.b, data.length() - 1);
+        if (start < 0 || stop < start) {
+            return "";
+        }
+        return data.subSequence(start, stop + 1).toString();
+    }
+
+    @Override
+    public void consume() {
+        if (position >= data.length()) {
+            throw new IllegalStateException("cannot consume EOF");
+        }
+        position++;
+    }
+
+    @Override
+    public int LA(int i) {
+        int offset;
+        if (i > 0) {
+            offset = position + i - 1;
+        } else if (i < 0) {
+            offset = position + i;
+        } else {
+            return 0;
+        }
+        if (offset < 0 || offset >= data.length()) {
+            return IntStream.EOF;
+        }
+        return data.charAt(offset);
+    }
+
+    @Override
+    public int mark() {
+        return -1;
+    }
+
+    @Override
+    public void release(int marker) {
+    }
+
+    @Override
+    public int index() {
+        return position;
+    }
+
+    @Override
+    public void seek(int index) {
+        position = index;
+    }
+
+    @Override
+    public int size() {
+        return data.length();
+    }
+
+    @Override
+    public String getSourceName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return data.toString();
+    }
+}
@@ -0,0 +1,315 @@
+package nl.han.ica.icss.parser;
+
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.misc.Pair;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hand-written lexer for the ICSS token set, a faster alternative to the generated ICSSLexer.
+ *
+ * The whole input is scanned in one pass with plain character tests instead of Antlr's ATN/DFA
+ * simulation. Tokens are kept in a packed int buffer (type, start, stop, line, column per token)
+ * and only turned into Token objects when the parser asks for them. Whitespace never becomes a token.
+ *
+ * The token stream, including the recognition errors and the characters skipped after them,
+ * is the same as the one produced by ICSSLexer for the rules in ICSS.g4. Keep both in sync.
+ */
+public class PackedLexer implements TokenSource {
+
+    //Layout of a token in the packed buffer
+    private static final int TYPE = 0;
+    private static final int START = 1;
+    private static final int STOP = 2;
+    private static final int LINE = 3;
+    private static final int COLUMN = 4;
+    private static final int FIELDS = 5;
+
+    private final CharStream input;
+    private final Pair<TokenSource, CharStream> source;
+    private TokenFactory<?> factory = CommonTokenFactory.DEFAULT;
+    private final List<ANTLRErrorListener> listeners = new ArrayList<>();
+
+    private int[] tokens = new int[FIELDS * 64];
+    private int size = 0;
+    private int next = 0;
+    private boolean lexed = false;
+
+    //Scanner state
+    private int line = 1;
+    private int column = 0;
+
+    public PackedLexer(CharStream input) {
+        this.input = input;
+        this.source = new Pair<>(this, input);
+    }
+
+    public void addErrorListener(ANTLRErrorListener listener) {
+        listeners.add(listener);
+    }
+    public void removeErrorListeners() {
+        listeners.clear();
+    }
+
+    /*
+     Access to the packed token buffer, the last token is always EOF.
+     */
+    public int getTokenCount() {
+        lex();
+        return size;
+    }
+    public int getType(int token) {
+        lex();
+        return tokens[token * FIELDS + TYPE];
+    }
+    public int getStartIndex(int token) {
+        lex();
+        return tokens[token * FIELDS + START];
+    }
+    public int getStopIndex(int token) {
+        lex();
+        return tokens[token * FIELDS + STOP];
+    }
+
+    @Override
+    public Token nextToken() {
+        lex();
+        int offset = next * FIELDS;
+        if (next < size - 1) {
+            next++;
+        }
+        return factory.create(source, tokens[offset + TYPE], null, Token.DEFAULT_CHANNEL,
+                tokens[offset + START], tokens[offset + STOP], tokens[offset + LINE], tokens[offset + COLUMN]);
+    }
+
+    @Override
+    public int getLine() {
+        lex();
+        return tokens[next * FIELDS + LINE];
+    }
+
+    @Override
+    public int getCharPositionInLine() {
+        lex();
+        return tokens[next * FIELDS + COLUMN];
+    }
+
+    @Override
+    public CharStream getInputStream() {
+        return input;
+    }
+
+    @Override
+    public String getSourceName() {
+        return input.getSourceName();
+    }
+
+    @Override
+    public void setTokenFactory(TokenFactory<?> factory) {
+        this.factory = factory;
+    }
+
+    @Override
+    public TokenFactory<?> getTokenFactory() {
+        return factory;
+    }
+
+    /*
+     Scans the whole input, on first use so error listeners added after construction are notified.
+     */
+    private void lex() {
+        if (lexed)
+            return;
+        lexed = true;
+
+        int c;
+        while ((c = input.LA(1)) != IntStream.EOF) {
+            int start = input.index();
+            int startLine = line;
+            int startColumn = column;
+
+            if (c == ' ' || c == '\t' || c == '\r' || c == '\n') {
+                int length = 1;
+                while (isWhitespace(input.LA(length + 1))) {
+                    length++;
+                }
+                consume(length);
+                continue;
+            }
+
+            int type;
+            int length = 1;
+            switch (c) {
+                case '[': type = ICSSLexer.BOX_BRACKET_OPEN; break;
+                case ']': type = ICSSLexer.BOX_BRACKET_CLOSE; break;
+                case '{': type = ICSSLexer.OPEN_BRACE; break;
+                case '}': type = ICSSLexer.CLOSE_BRACE; break;
+                case ';': type = ICSSLexer.SEMICOLON; break;
+                case '+': type = ICSSLexer.PLUS; break;
+                case '-': type = ICSSLexer.MIN; break;
+                case '*': type = ICSSLexer.MUL; break;
+                case ':':
+                    if (input.LA(2) == '=') {
+                        type = ICSSLexer.ASSIGNMENT_OPERATOR;
+                        length = 2;
+                    } else {
+                        type = ICSSLexer.COLON;
+                    }
+                    break;
+                case '#':
+                    length = 1 + identifierLength(2);
+                    if (length == 7 && isColor()) {
+                        type = ICSSLexer.COLOR;
+                    } else {
+                        type = ICSSLexer.ID_IDENT;
+                    }
+                    break;
+                case '.':
+                    length = 1 + identifierLength(2);
+                    type = ICSSLexer.CLASS_IDENT;
+                    break;
+                default:
+                    if (c >= '0' && c <= '9') {
+                        while (isDigit(input.LA(length + 1))) {
+                            length++;
+                        }
+                        if (input.LA(length + 1) == 'p' && input.LA(length + 2) == 'x') {
+                            type = ICSSLexer.PIXELSIZE;
+                            length += 2;
+                        } else if (input.LA(length + 1) == '%') {
+                            type = ICSSLexer.PERCENTAGE;
+                            length++;
+                        } else {
+                            type = ICSSLexer.SCALAR;
+                        }
+                    } else if (c >= 'a' && c <= 'z') {
+                        length += identifierLength(2);
+                        if (length == 2 && c == 'i' && input.LA(2) == 'f') {
+                            type = ICSSLexer.IF;
+                        } else {
+                            type = ICSSLexer.LOWER_IDENT;
+                        }
+                    } else if (c >= 'A' && c <= 'Z') {
+                        while (isCapitalIdentifierPart(input.LA(length + 1))) {
+                            length++;
+                        }
+                        type = capitalIdentifierType(length);
+                    } else {
+                        type = Token.INVALID_TYPE;
+                    }
+            }
+
+            if (type == Token.INVALID_TYPE || length == 1 && (c == '#' || c == '.')) {
+                recognitionError(start, startLine, startColumn, type == Token.INVALID_TYPE ? 0 : 1);
+                continue;
+            }
+            consume(length);
+            add(type, start, start + length - 1, startLine, startColumn);
+        }
+        int end = input.index();
+        add(Token.EOF, end, end - 1, line, column);
+    }
+
+    /*
+     Mirrors Antlr's lexer recovery: report the characters up to and including the one where
+     no rule could continue, then skip them.
+     */
+    private void recognitionError(int start, int startLine, int startColumn, int matched) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 1; i <= matched + 1; i++) {
+            int c = input.LA(i);
+            if (c == IntStream.EOF)
+                break;
+            text.appendCodePoint(c);
+        }
+        String message = "token recognition error at: '" + errorDisplay(text.toString()) + "'";
+        for (ANTLRErrorListener listener : listeners) {
+            listener.syntaxError(null, null, startLine, startColumn, message, null);
+        }
+        consume(matched);
+        if (input.LA(1) != IntStream.EOF) {
+            consume(1);
+        }
+    }
+
+    private void consume(int length) {
+        for (int i = 0; i < length; i++) {
+            if (input.LA(1) == '\n') {
+                line++;
+                column = 0;
+            } else {
+                column++;
+            }
+            input.consume();
+        }
+    }
+
+    private void add(int type, int start, int stop, int line, int column) {
+        if ((size + 1) * FIELDS > tokens.length) {
+            int[] grown = new int[tokens.length * 2];
+            System.arraycopy(tokens, 0, grown, 0, tokens.length);
+            tokens = grown;
+        }
+        int offset = size * FIELDS;
+        tokens[offset + TYPE] = type;
+        tokens[offset + START] = start;
+        tokens[offset + STOP] = stop;
+        tokens[offset + LINE] = line;
+        tokens[offset + COLUMN] = column;
+        size++;
+    }
+
+    //Length of the run of [a-z0-9\-] starting at lookahead position i
+    private int identifierLength(int i) {
+        int length = 0;
+        while (isIdentifierPart(input.LA(i + length))) {
+            length++;
+        }
+        return length;
+    }
+
+    private boolean isColor() {
+        for (int i = 2; i <= 7; i++) {
+            int c = input.LA(i);
+            if (!(isDigit(c) || c >= 'a' && c <= 'f'))
+                return false;
+        }
+        return true;
+    }
+
+    private int capitalIdentifierType(int length) {
+        if (length == 4 && input.LA(1) == 'T' && input.LA(2) == 'R' && input.LA(3) == 'U' && input.LA(4) == 'E')
+            return ICSSLexer.TRUE;
+        if (length == 5 && input.LA(1) == 'F' && input.LA(2) == 'A' && input.LA(3) == 'L' && input.LA(4) == 'S'
+                && input.LA(5) == 'E')
+            return ICSSLexer.FALSE;
+        return ICSSLexer.CAPITAL_IDENT;
+    }
+
+    private static boolean isWhitespace(int c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+    }
+    private static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+    private static boolean isIdentifierPart(int c) {
+        return c >= 'a' && c <= 'z' || c >= '0' && c <= '9' || c == '-';
+    }
+    private static boolean isCapitalIdentifierPart(int c) {
+        return c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z' || c >= '0' && c <= '9' || c == '_';
+    }
+
+    private static String errorDisplay(String text) {
+        StringBuilder display = new StringBuilder();
+        for (char c : text.toCharArray()) {
+            switch (c) {
+                case '\n': display.append("\\n"); break;
+                case '\t': display.append("\\t"); break;
+                case '\r': display.append("\\r"); break;
+                default: display.append(c);
+            }
+        }
+        return display.toString();
+    }
+}
@@ -0,0 +1,276 @@
+package nl.han.ica.icss.snapshot;
+
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.ast.literals.*;
+import nl.han.ica.icss.ast.operations.AddOperation;
+import nl.han.ica.icss.ast.operations.MultiplyOperation;
+import nl.han.ica.icss.ast.operations.SubtractOperation;
+import nl.han.ica.icss.ast.selectors.ClassSelector;
+import nl.han.ica.icss.ast.selectors.IdSelector;
+import nl.han.ica.icss.ast.selectors.TagSelector;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import static nl.han.ica.icss.ast.NodeKind.*;
+
+/**
+ * Compact binary snapshot of an AST (for example after checking and transforming it),
+ * which can be loaded again without lexing, parsing or checking.
+ *
+ * Layout, all integers are unsigned LEB128 varints (ints are zigzag encoded):
+ *   magic "ICSA", format version byte
+ *   string table: count, then per string its UTF-8 length and bytes
+ *   the nodes in pre-order: kind byte (ERROR_FLAG set when the node has an error, followed by
+ *   the string index of the description), the payload of leaf kinds, or the child count
+ *   followed by the children for container kinds.
+ *
+ * Loading reads straight from a (memory-mapped) ByteBuffer.
+ */
+public class ASTSnapshot {
+
+    private static final byte[] MAGIC = {'I', 'C', 'S', 'A'};
+    private static final int FORMAT_VERSION = 1;
+
+    //Set in the kind byte of a node with an error, the kinds are those of NodeKind
+    private static final int ERROR_FLAG = 0x80;
+
+    private ASTSnapshot() {
+    }
+
+    public static void write(AST ast, Path file) throws IOException {
+        Path temporary = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temporary, toBytes(ast));
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    public static AST read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return read(bytes);
+        }
+    }
+
+    public static byte[] toBytes(AST ast) {
+        Writer writer = new Writer();
+        Output nodes = new Output();
+        writer.writeNode(nodes, ast.root);
+
+        Output output = new Output();
+        output.writeBytes(MAGIC, MAGIC.length);
+        output.writeByte(FORMAT_VERSION);
+        output.writeVarint(writer.strings.size());
+        for (String string : writer.strings) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            output.writeVarint(bytes.length);
+            output.writeBytes(bytes, bytes.length);
+        }
+        output.writeBytes(nodes.bytes, nodes.size);
+        return Arrays.copyOf(output.bytes, output.size);
+    }
+
+    public static AST read(ByteBuffer bytes) throws IOException {
+        ByteBuffer input = bytes.duplicate();
+        try {
+            for (byte b : MAGIC) {
+                if (input.get() != b)
+                    throw new IOException("Not an ICSS AST snapshot");
+            }
+            if (input.get() != FORMAT_VERSION)
+                throw new IOException("Unsupported AST snapshot version");
+
+            String[] strings = new String[readVarint(input)];
+            for (int i = 0; i < strings.length; i++) {
+                int length = readVarint(input);
+                ByteBuffer slice = input.slice().limit(length);
+                strings[i] = StandardCharsets.UTF_8.decode(slice).toString();
+                input.position(input.position() + length);
+            }
+
+            ASTNode root = readNode(input, strings);
+            if (!(root instanceof Stylesheet))
+                throw new IOException("AST snapshot does not contain a stylesheet");
+            return new AST((Stylesheet) root);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Corrupt AST snapshot", e);
+        }
+    }
+
+    private static ASTNode readNode(ByteBuffer input, String[] strings) throws IOException {
+        int kind = input.get() & 0xff;
+        String error = null;
+        if ((kind & ERROR_FLAG) != 0) {
+            kind &= ~ERROR_FLAG;
+            error = strings[readVarint(input)];
+        }
+
+        ASTNode node;
+        switch (kind) {
+            case NULL: return null;
+            case STYLESHEET: node = new Stylesheet(); break;
+            case STYLERULE: node = new Stylerule(); break;
+            case DECLARATION: node = new Declaration(); break;
+            case PROPERTY_NAME: node = new PropertyName(strings[readVarint(input)]); break;
+            case IF_CLAUSE: node = new IfClause(); break;
+            case VARIABLE_ASSIGNMENT: node = new VariableAssignment(); break;
+            case VARIABLE_REFERENCE: node = new VariableReference(strings[readVarint(input)]); break;
+            case BOOL_LITERAL: node = new BoolLiteral(input.get() != 0); break;
+            case COLOR_LITERAL: node = new ColorLiteral(strings[readVarint(input)]); break;
+            case PERCENTAGE_LITERAL: node = new PercentageLiteral(readSignedVarint(input)); break;
+            case PIXEL_LITERAL: node = new PixelLiteral(readSignedVarint(input)); break;
+            case SCALAR_LITERAL: node = new ScalarLiteral(readSignedVarint(input)); break;
+            case ADD_OPERATION: node = new AddOperation(); break;
+            case MULTIPLY_OPERATION: node = new MultiplyOperation(); break;
+            case SUBTRACT_OPERATION: node = new SubtractOperation(); break;
+            case TAG_SELECTOR: node = new TagSelector(strings[readVarint(input)]); break;
+            case CLASS_SELECTOR: node = new ClassSelector(strings[readVarint(input)]); break;
+            case ID_SELECTOR: node = new IdSelector(strings[readVarint(input)]); break;
+            default: throw new IOException("Unknown node kind " + kind + " in AST snapshot");
+        }
+
+        if (isContainer(kind)) {
+            int children = readVarint(input);
+            for (int i = 0; i < children; i++) {
+                ASTNode child = readNode(input, strings);
+                if (child != null) {
+                    node.addChild(child);
+                }
+            }
+        }
+        if (error != null) {
+            node.setError(error);
+        }
+        return node;
+    }
+
+    private static int readVarint(ByteBuffer input) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = input.get();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IOException("Malformed varint in AST snapshot");
+    }
+
+    private static int readSignedVarint(ByteBuffer input) throws IOException {
+        int value = readVarint(input);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /*
+     Collects the string table while encoding the nodes.
+     */
+    private static class Writer {
+        final List<String> strings = new ArrayList<>();
+        final HashMap<String, Integer> stringIndexes = new HashMap<>();
+
+        int indexOf(String string) {
+            Integer index = stringIndexes.get(string);
+            if (index == null) {
+                index = strings.size();
+                strings.add(string);
+                stringIndexes.put(string, index);
+            }
+            return index;
+        }
+
+        void writeNode(Output output, ASTNode node) {
+            if (node == null) {
+                output.writeByte(NULL);
+                return;
+            }
+            int kind = NodeKind.of(node);
+            if (node.hasError()) {
+                output.writeByte(kind | ERROR_FLAG);
+                output.writeVarint(indexOf(node.getError().description));
+            } else {
+                output.writeByte(kind);
+            }
+
+            if (node instanceof PropertyName) {
+                output.writeVarint(indexOf(((PropertyName) node).name));
+            } else if (node instanceof VariableReference) {
+                output.writeVarint(indexOf(((VariableReference) node).name));
+            } else if (node instanceof BoolLiteral) {
+                output.writeByte(((BoolLiteral) node).value ? 1 : 0);
+            } else if (node instanceof ColorLiteral) {
+                output.writeVarint(indexOf(((ColorLiteral) node).value));
+            } else if (node instanceof PercentageLiteral) {
+                output.writeSignedVarint(((PercentageLiteral) node).value);
+            } else if (node instanceof PixelLiteral) {
+                output.writeSignedVarint(((PixelLiteral) node).value);
+            } else if (node instanceof ScalarLiteral) {
+                output.writeSignedVarint(((ScalarLiteral) node).value);
+            } else if (node instanceof TagSelector) {
+                output.writeVarint(indexOf(((TagSelector) node).tag));
+            } else if (node instanceof ClassSelector) {
+                output.writeVarint(indexOf(((ClassSelector) node).cls));
+            } else if (node instanceof IdSelector) {
+                output.writeVarint(indexOf(((IdSelector) node).id));
+            }
+
+            if (isContainer(kind)) {
+                int count = node.getChildCount();
+                output.writeVarint(count);
+                for (int i = 0; i < count; i++) {
+                    writeNode(output, node.getChild(i));
+                }
+            }
+        }
+    }
+
+    /*
+     Growable byte buffer with varint encoding.
+     */
+    private static class Output {
+        byte[] bytes = new byte[256];
+        int size = 0;
+
+        void writeByte(int b) {
+            ensureCapacity(1);
+            bytes[size++] = (byte) b;
+        }
+
+        void writeBytes(byte[] source, int length) {
+            ensureCapacity(length);
+            System.arraycopy(source, 0, bytes, size, length);
+            size += length;
+        }
+
+        void writeVarint(int value) {
+            while ((value & ~0x7f) != 0) {
+                writeByte((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            writeByte(value);
+        }
+
+        void writeSignedVarint(int value) {
+            writeVarint((value << 1) ^ (value >> 31));
+        }
+
+        private void ensureCapacity(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+    }
+}
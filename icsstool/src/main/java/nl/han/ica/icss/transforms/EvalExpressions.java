@@ -2,11 +2,10 @@ package nl.han.ica.icss.transforms;
 
 import nl.han.ica.icss.ast.*;
 import nl.han.ica.icss.ast.literals.*;
-import nl.han.ica.icss.ast.operations.AddOperation;
-import nl.han.ica.icss.ast.operations.MultiplyOperation;
-import nl.han.ica.icss.ast.operations.SubtractOperation;
+import nl.han.ica.icss.ast.types.ExpressionType;
+import nl.han.ica.icss.ast.types.OperatorTable;
+import nl.han.ica.icss.ast.types.TypeTable;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
 
@@ -14,225 +13,227 @@ public class EvalExpressions implements Transform
 {
 
     private LinkedList<HashMap<String, Literal>> variableValues;
+    //Shares the computed literals when set
+    private NodeInterner interner;
+    //Types of the operations, from the Checker
+    private TypeTable types;
 
     public EvalExpressions()
+    {
+        this(null);
+    }
+
+    public EvalExpressions(NodeInterner interner)
     {
         variableValues = new LinkedList<>();
+        this.interner = interner;
     }
 
     @Override
     public void apply(AST ast)
     {
+        if (ast.root.isShared())
+        {
+            throw new IllegalStateException("The AST is frozen, use applyToVersion");
+        }
+        types = ast.getTypes();
         evalNode(ast.root);
     }
 
-    private void evalNode(ASTNode root)
+    /*
+     The nodes of the frozen AST are not changed, evalNode copies the path to every evaluated expression.
+     */
+    @Override
+    public AST applyToVersion(AST ast)
     {
-        ArrayList<ASTNode> nodes = root.getChildren();
-        for (ASTNode child : nodes)
+        ast.freeze();
+        types = ast.getTypes();
+        return ast.withRoot((Stylesheet) evalNode(ast.root));
+    }
+
+    /*
+     Returns the node with its expressions evaluated: the node itself when nothing below it changed or
+     when it could be changed in place, a copy when it is shared (path copying, see AST.version).
+     */
+    private ASTNode evalNode(ASTNode root)
+    {
+        ASTNode result = root;
+        for (int i = 0; i < root.getChildCount(); i++)
         {
+            ASTNode child = root.getChild(i);
+            ASTNode evaluated = child;
             if (child instanceof VariableAssignment)
             {
-                addAssignedVariableToList((VariableAssignment) child);
+                evaluated = addAssignedVariableToList((VariableAssignment) child);
             }
             if (child instanceof IfClause || child instanceof Declaration)
             {
-                transformExpression(child);
+                evaluated = transformExpression(child);
+            }
+            if (evaluated.getChildCount() > 0)
+            {
+                evaluated = evalNode(evaluated);
             }
-            if (!child.getChildren().isEmpty())
+            if (evaluated != child)
             {
-                evalNode(child);
+                result = result.withChild(child, evaluated);
             }
         }
+        return result;
     }
 
-    private void addAssignedVariableToList(VariableAssignment astNode)
+    private VariableAssignment addAssignedVariableToList(VariableAssignment astNode)
     {
         HashMap<String, Literal> map = new HashMap<>();
         String name = astNode.name.name;
-        if (!(astNode.expression instanceof Literal))
-        {
-            transformExpression(astNode.expression);
-        }
-        if (astNode.expression instanceof BoolLiteral)
+        Expression expression = astNode.expression;
+        if (!(expression instanceof Literal))
         {
-            map.put(name, (BoolLiteral) astNode.expression);
-        }
-        if (astNode.expression instanceof ColorLiteral)
-        {
-            map.put(name, (ColorLiteral) astNode.expression);
-        }
-        if (astNode.expression instanceof PercentageLiteral)
-        {
-            map.put(name, (PercentageLiteral) astNode.expression);
-        }
-        if (astNode.expression instanceof PixelLiteral)
-        {
-            map.put(name, (PixelLiteral) astNode.expression);
+            Expression transformed = (Expression) transformExpression(expression);
+            if (transformed != expression)
+            {
+                astNode = (VariableAssignment) astNode.withChild(expression, transformed);
+                expression = transformed;
+            }
         }
-        if (astNode.expression instanceof ScalarLiteral)
+        if (expression instanceof Literal)
         {
-            map.put(name, (ScalarLiteral) astNode.expression);
+            map.put(name, (Literal) expression);
         }
         variableValues.add(map);
+        return astNode;
     }
 
-    private void transformExpression(ASTNode astNode)
+    /*
+     An expression that cannot be evaluated (an undefined variable, operands that do not fit) stays
+     in the tree as it is, nothing is replaced by null.
+     */
+    private ASTNode transformExpression(ASTNode astNode)
     {
-        ArrayList<ASTNode> children = astNode.getChildren();
-        for (ASTNode child : children)
+        //A replaced child keeps its slot, so the indexes stay valid
+        ASTNode result = astNode;
+        for (int i = 0; i < astNode.getChildCount(); i++)
         {
+            ASTNode child = astNode.getChild(i);
+            ASTNode evaluated = child;
             if (child instanceof VariableReference)
             {
-                astNode.removeChild(child);
-                child = transformVariableReference((VariableReference) child);
-                astNode.addChild(child);
+                evaluated = transformVariableReference((VariableReference) child);
             }
             if (child instanceof Operation)
             {
-                astNode.removeChild(child);
-                child = transformOperation((Operation) child);
-                astNode.addChild(child);
+                evaluated = transformOperation((Operation) child);
+            }
+            if (evaluated != child)
+            {
+                result = result.withChild(child, evaluated);
             }
         }
-
+        return result;
     }
 
-    private Literal transformVariableReference(VariableReference astNode)
+    /*
+     The value of the variable, the reference itself when the variable has no value.
+     A node has one parent, so every reference gets its own copy of the value. Shared nodes have no
+     parent: with hash-consing the interned value is used, and a frozen value as it is.
+     */
+    private Expression transformVariableReference(VariableReference astNode)
     {
-        for (HashMap map : variableValues)
+        for (HashMap<String, Literal> map : variableValues)
         {
-            String name = astNode.name;
-            if (map.containsKey(name))
+            Literal value = map.get(astNode.name);
+            if (value != null)
             {
-                return (Literal) map.get(name);
+                if (interner != null)
+                {
+                    value = interner.intern(value);
+                }
+                return value.isShared() ? value : NodeInterner.copy(value);
             }
         }
-        return null;
+        return astNode;
     }
 
-    private Literal transformOperation(Operation astNode)
+    //The operation itself is replaced by the result, so its operands are evaluated without changing it
+    private Expression transformOperation(Operation astNode)
     {
-        Expression left = astNode.lhs;
-        Expression right = astNode.rhs;
-
-        if (!(left instanceof Literal))
-        {
-            astNode.removeChild(left);
-        }
-        if (!(right instanceof Literal))
-        {
-            astNode.removeChild(right);
-        }
-        if (left instanceof VariableReference)
-        {
-            astNode.lhs = transformVariableReference((VariableReference) left);
-        }
-        if (right instanceof VariableReference)
-        {
-            astNode.rhs = transformVariableReference((VariableReference) right);
-        }
-        if (left instanceof Operation)
-        {
-            astNode.lhs = transformOperation((Operation) left);
-        }
-        if (right instanceof Operation)
-        {
-            astNode.rhs = transformOperation((Operation) right);
-        }
-
-        return operate(astNode);
+        Expression result = operate(astNode, evaluate(astNode.lhs), evaluate(astNode.rhs));
+        return interner == null || result == astNode ? result : interner.intern(result);
     }
 
-    private Literal operate(Operation operation)
+    private Expression evaluate(Expression expression)
     {
-        Expression left = operation.lhs;
-        Expression right = operation.rhs;
-
-        if (operation instanceof AddOperation)
+        if (expression instanceof VariableReference)
         {
-            return operateAdd(left, right);
+            return transformVariableReference((VariableReference) expression);
         }
-        if (operation instanceof SubtractOperation)
+        if (expression instanceof Operation)
         {
-            return operateSubstract(left, right);
+            return transformOperation((Operation) expression);
         }
-
-        if (operation instanceof MultiplyOperation)
-        {
-            return operateMultiply(left, right);
-        }
-        return null;
+        return expression;
     }
 
-    private Literal operateSubstract(Expression left, Expression right)
+    /*
+     The type of the result comes from the TypeTable, or from the OperatorTable and the operand literals when
+     the AST was not checked. The operands then only have to be read as numbers.
+     Returns the operation itself when the operands are not literals or do not fit.
+     */
+    private Expression operate(Operation operation, Expression left, Expression right)
     {
-        if (left instanceof PercentageLiteral)
+        if (!(left instanceof Literal) || !(right instanceof Literal))
         {
-            int value = ((PercentageLiteral) left).value - ((PercentageLiteral) right).value;
-            return new PercentageLiteral(value);
+            return operation;
         }
-        if (left instanceof PixelLiteral)
+        ExpressionType type = types == null ? null : types.get(operation);
+        if (type == null)
         {
-            int value = ((PixelLiteral) left).value - ((PixelLiteral) right).value;
-            return new PixelLiteral(value);
+            type = OperatorTable.resultType(operation.getOperator(), ((Literal) left).getType(), ((Literal) right).getType());
         }
-        if (left instanceof ScalarLiteral)
+        if (type != ExpressionType.PIXEL && type != ExpressionType.PERCENTAGE && type != ExpressionType.SCALAR)
         {
-            int value = ((ScalarLiteral) left).value - ((ScalarLiteral) right).value;
-            return new ScalarLiteral(value);
+            return operation;
         }
-        return null;
-    }
 
-    private Literal operateAdd(Expression left, Expression right)
-    {
-        if (left instanceof PercentageLiteral)
-        {
-            int value = ((PercentageLiteral) left).value + ((PercentageLiteral) right).value;
-            return new PercentageLiteral(value);
-        }
-        if (left instanceof PixelLiteral)
+        int lhs = valueOf(left);
+        int rhs = valueOf(right);
+        int value;
+        switch (operation.getOperator())
         {
-            int value = ((PixelLiteral) left).value + ((PixelLiteral) right).value;
-            return new PixelLiteral(value);
+            case ADD:
+                value = lhs + rhs;
+                break;
+            case SUBTRACT:
+                value = lhs - rhs;
+                break;
+            case MULTIPLY:
+                value = lhs * rhs;
+                break;
+            default:
+                return operation;
         }
-        if (left instanceof ScalarLiteral)
-        {
-            int value = ((ScalarLiteral) left).value + ((ScalarLiteral) right).value;
-            return new ScalarLiteral(value);
-        }
-        return null;
-    }
 
-    private Literal operateMultiply(Expression left, Expression right)
-    {
-        if (left instanceof ScalarLiteral && right instanceof ScalarLiteral)
-        {
-            int value = ((ScalarLiteral) left).value * ((ScalarLiteral) right).value;
-            return new ScalarLiteral(value);
-        } else if (left instanceof ScalarLiteral)
-        {
-            return multiply((ScalarLiteral) left, right);
-        } else if (right instanceof ScalarLiteral)
+        switch (type)
         {
-            return multiply((ScalarLiteral) right, left);
+            case PIXEL:
+                return new PixelLiteral(value);
+            case PERCENTAGE:
+                return new PercentageLiteral(value);
+            default:
+                return new ScalarLiteral(value);
         }
-        return null;
     }
 
-    private Literal multiply(ScalarLiteral scalar, Expression expression)
+    private static int valueOf(Expression literal)
     {
-        if (expression instanceof PercentageLiteral)
+        if (literal instanceof PixelLiteral)
         {
-            int value = scalar.value * ((PercentageLiteral) expression).value;
-            return new PercentageLiteral(value);
+            return ((PixelLiteral) literal).value;
         }
-        if (expression instanceof PixelLiteral)
+        if (literal instanceof PercentageLiteral)
         {
-            int value = scalar.value * ((PixelLiteral) expression).value;
-            return new PixelLiteral(value);
+            return ((PercentageLiteral) literal).value;
         }
-        return null;
+        return ((ScalarLiteral) literal).value;
     }
 }
@@ -3,5 +3,20 @@ package nl.han.ica.icss.transforms;
 import nl.han.ica.icss.ast.AST;
 
 public interface Transform {
+
+    /**
+     * Transforms the AST in place.
+     */
     void apply(AST ast);
+
+    /**
+     * Transforms a new version of the AST (see AST.version), the AST itself is frozen and does not change.
+     * @return the transformed version, frozen
+     */
+    default AST applyToVersion(AST ast) {
+        AST version = ast.version();
+        apply(version);
+        version.freeze();
+        return version;
+    }
 }
@@ -0,0 +1,119 @@
+package nl.han.ica.icss;
+
+import com.google.common.io.Resources;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IncrementalParseTest {
+
+	String level(String resource) throws IOException {
+		return Resources.toString(Resources.getResource(resource), StandardCharsets.UTF_8);
+	}
+
+	void assertEditMatchesFullParse(String source, int offset, int removedLength, String insertedText) {
+		Pipeline incremental = new Pipeline();
+		incremental.parseString(source);
+		incremental.parseEdit(offset, removedLength, insertedText);
+
+		String edited = source.substring(0, offset) + insertedText + source.substring(offset + removedLength);
+		Pipeline full = new Pipeline();
+		full.parseString(edited);
+
+		assertEquals(full.isParsed(), incremental.isParsed());
+		assertEquals(full.getAST(), incremental.getAST());
+		assertEquals(full.getAST().toString(), incremental.getAST().toString());
+	}
+
+	@Test
+	void testEditInsideStylerule() throws IOException {
+		String source = level("level3.icss");
+		int offset = source.indexOf("#000000");
+		assertEditMatchesFullParse(source, offset, 7, "#abcdef");
+	}
+	@Test
+	void testEditInsideVariableAssignment() throws IOException {
+		String source = level("level3.icss");
+		int offset = source.indexOf("500px");
+		assertEditMatchesFullParse(source, offset, 3, "42");
+	}
+	@Test
+	void testInsertStatementBetweenStatements() throws IOException {
+		String source = level("level2.icss");
+		int offset = source.indexOf("a {");
+		assertEditMatchesFullParse(source, offset, 0, "h1 { width: 10px; }\nExtra := 5%;\n");
+	}
+	@Test
+	void testEditMergingStatements() throws IOException {
+		String source = level("level1.icss");
+		int offset = source.indexOf("}");
+		assertEditMatchesFullParse(source, offset, 1, "");
+	}
+	@Test
+	void testRemoveStatement() throws IOException {
+		String source = level("level0.icss");
+		int start = source.indexOf("a {");
+		int end = source.indexOf("}", start) + 1;
+		assertEditMatchesFullParse(source, start, end - start, "");
+	}
+	@Test
+	void testEditsAccumulate() throws IOException {
+		String source = level("level2.icss");
+		Pipeline pipeline = new Pipeline();
+		pipeline.parseString(source);
+		int offset = source.indexOf("10px");
+		for (int i = 0; i < 5; i++) {
+			pipeline.parseEdit(offset, 2, String.valueOf(20 + i));
+			source = source.substring(0, offset) + (20 + i) + source.substring(offset + 2);
+		}
+		Pipeline full = new Pipeline();
+		full.parseString(source);
+		assertTrue(pipeline.isParsed());
+		assertEquals(full.getAST().toString(), pipeline.getAST().toString());
+	}
+	@Test
+	void testEditAfterTheFileWasTruncated(@TempDir Path directory) throws IOException {
+		String source = level("level3.icss");
+		Path file = directory.resolve("level3.icss");
+		Files.writeString(file, source);
+		Pipeline incremental = new Pipeline();
+		incremental.parseFile(file);
+
+		//The pipeline keeps a copy of the source, not the mapping of the file
+		Files.write(file, new byte[0]);
+		int offset = source.indexOf("#000000");
+		incremental.parseEdit(offset, 7, "#abcdef");
+
+		Pipeline full = new Pipeline();
+		full.parseString(source.substring(0, offset) + "#abcdef" + source.substring(offset + 7));
+		assertTrue(incremental.isParsed());
+		assertEquals(full.getAST(), incremental.getAST());
+		Files.delete(file);
+	}
+	@Test
+	void testEditOfADecodedFileAfterItWasTruncated(@TempDir Path directory) throws IOException {
+		//Not ASCII, so the file is decoded instead of read from the mapping
+		String source = "p { width: 10px; }\na { color: #ff0000; \u00e9 }";
+		Path file = directory.resolve("decoded.icss");
+		Files.writeString(file, source);
+		Pipeline incremental = new Pipeline();
+		incremental.parseFile(file);
+		assertFalse(incremental.isParsed());
+
+		Files.write(file, new byte[0]);
+		int offset = source.indexOf("\u00e9");
+		incremental.parseEdit(offset, 1, "");
+
+		Pipeline full = new Pipeline();
+		full.parseString(source.substring(0, offset) + source.substring(offset + 1));
+		assertTrue(incremental.isParsed());
+		assertEquals(full.getAST(), incremental.getAST());
+		Files.delete(file);
+	}
+}
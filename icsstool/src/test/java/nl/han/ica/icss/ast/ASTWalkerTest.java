@@ -0,0 +1,89 @@
+package nl.han.ica.icss.ast;
+
+import nl.han.ica.icss.ast.literals.PixelLiteral;
+import nl.han.ica.icss.ast.operations.AddOperation;
+import nl.han.ica.icss.parser.Fixtures;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ASTWalkerTest {
+
+	//Records the label of every node, in visiting order
+	ASTVisitor<Void> recorder(String prefix, List<String> events) {
+		return new ASTVisitor<Void>() {
+			@Override
+			public Void visitNode(ASTNode node) {
+				events.add(prefix + node.getNodeLabel());
+				return null;
+			}
+		};
+	}
+
+	void collectPreOrder(ASTNode node, List<String> labels) {
+		labels.add(node.getNodeLabel());
+		for (ASTNode child : node.getChildren()) {
+			collectPreOrder(child, labels);
+		}
+	}
+
+	@Test
+	void testVisitsEveryNodeInPreOrder() {
+		AST ast = Fixtures.uncheckedLevel3();
+		List<String> expected = new ArrayList<>();
+		collectPreOrder(ast.root, expected);
+
+		List<String> events = new ArrayList<>();
+		new ASTWalker().add(recorder("", events)).walk(ast);
+		assertEquals(expected, events);
+	}
+	@Test
+	void testInterleavesPasses() {
+		AddOperation add = new AddOperation();
+		add.addChild(new PixelLiteral(1));
+		add.addChild(new PixelLiteral(2));
+
+		List<String> events = new ArrayList<>();
+		new ASTWalker()
+				.add(recorder("a>", events), recorder("a<", events))
+				.add(recorder("b>", events), recorder("b<", events))
+				.walk(add);
+
+		List<String> expected = new ArrayList<>();
+		for (String label : new String[]{"Add", "Pixel literal (1)", "Pixel literal (2)"}) {
+			expected.add("a>" + label);
+			expected.add("b>" + label);
+			if (!label.equals("Add")) {
+				expected.add("b<" + label);
+				expected.add("a<" + label);
+			}
+		}
+		expected.add("b<Add");
+		expected.add("a<Add");
+		assertEquals(expected, events);
+	}
+	@Test
+	void testDispatchFallsBackToCategories() {
+		ASTVisitor<String> visitor = new ASTVisitor<String>() {
+			@Override
+			public String visitNode(ASTNode node) {
+				return "node";
+			}
+			@Override
+			public String visitOperation(Operation node) {
+				return "operation";
+			}
+			@Override
+			public String visitPixelLiteral(PixelLiteral node) {
+				return "pixel";
+			}
+		};
+		assertEquals("operation", new AddOperation().accept(visitor));
+		assertEquals("pixel", new PixelLiteral(1).accept(visitor));
+		assertEquals("node", new Stylesheet().accept(visitor));
+		assertEquals("node", new Declaration("width").accept(visitor));
+	}
+}
@@ -0,0 +1,87 @@
+package nl.han.ica.icss.ast;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.checker.SemanticError;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ErrorRegistryTest {
+
+	static final String ERRONEOUS = "Color := #ff0000;\n"
+			+ "p { width: Color; if[Undefined] { color: Missing; } height: 10px; }\n"
+			+ "a { color: 10px; }\n"
+			+ "b { width: 10px; }\n"
+			+ "c { if[Color] { width: Color; } color: 5; }\n";
+
+	//Errors in tree order, the way they were found before the registry existed
+	void walk(ASTNode node, List<String> errors) {
+		if (node.hasError()) {
+			errors.add(node.getError().toString());
+		}
+		for (ASTNode child : node.getChildren()) {
+			walk(child, errors);
+		}
+	}
+
+	List<String> describe(List<SemanticError> errors) {
+		List<String> result = new ArrayList<>();
+		for (SemanticError error : errors) {
+			result.add(error.toString());
+		}
+		return result;
+	}
+
+	@Test
+	void testErrorsInSourceOrder() {
+		for (boolean hashConsing : new boolean[]{false, true}) {
+			Pipeline pipeline = new Pipeline();
+			pipeline.setHashConsing(hashConsing);
+			pipeline.parseString(ERRONEOUS);
+			assertFalse(pipeline.check());
+
+			List<String> expected = new ArrayList<>();
+			walk(pipeline.getAST().root, expected);
+			assertTrue(expected.size() > 4);
+			assertEquals(expected, describe(pipeline.getAST().getErrors()));
+		}
+	}
+	@Test
+	void testClearedPerCheck() {
+		Pipeline pipeline = new Pipeline();
+		pipeline.parseString(ERRONEOUS);
+		assertFalse(pipeline.check());
+		int count = pipeline.getAST().getErrors().size();
+		assertFalse(pipeline.check());
+		assertEquals(count, pipeline.getAST().getErrors().size());
+
+		pipeline.getAST().clearErrors();
+		assertTrue(pipeline.getAST().getErrors().isEmpty());
+		List<String> remaining = new ArrayList<>();
+		walk(pipeline.getAST().root, remaining);
+		assertTrue(remaining.isEmpty());
+	}
+	@Test
+	void testRemovedNodesAreNotReported() {
+		Pipeline pipeline = new Pipeline();
+		pipeline.parseString(ERRONEOUS);
+		pipeline.check();
+		AST ast = pipeline.getAST();
+		int before = ast.getErrors().size();
+		ast.root.removeChild(ast.root.body.get(2));
+		assertEquals(before - 1, ast.getErrors().size());
+	}
+	@Test
+	void testErrorsSetBeforeAttaching() {
+		Declaration declaration = new Declaration("width");
+		declaration.setError("Detached");
+		Stylerule rule = new Stylerule();
+		rule.addChild(declaration);
+		Stylesheet stylesheet = new Stylesheet();
+		stylesheet.addChild(rule);
+		assertEquals(1, new AST(stylesheet).getErrors().size());
+	}
+}
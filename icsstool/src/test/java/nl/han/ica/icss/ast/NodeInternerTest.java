@@ -0,0 +1,91 @@
+package nl.han.ica.icss.ast;
+
+import com.google.common.io.Resources;
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.ast.literals.PixelLiteral;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NodeInternerTest {
+
+	static final String REPETITIVE = "Width := 10px;\n"
+			+ "p { color: #000000; width: 100%; height: Width + 2px; }\n"
+			+ ".a { color: #000000; width: 100%; height: Width + 2px; }\n"
+			+ "#b { color: #000000; width: 100%; if[TRUE] { color: #000000; } }\n";
+
+	Pipeline pipeline(String source, boolean hashConsing, boolean buildParseTree) {
+		Pipeline pipeline = new Pipeline();
+		pipeline.setHashConsing(hashConsing);
+		pipeline.setBuildParseTree(buildParseTree);
+		pipeline.parseString(source);
+		return pipeline;
+	}
+
+	@Test
+	void testSameResultsWithHashConsing() throws IOException {
+		for (String resource : new String[]{"level0.icss", "level1.icss", "level2.icss", "level3.icss"}) {
+			String source = Resources.toString(Resources.getResource(resource), StandardCharsets.UTF_8);
+			for (String input : new String[]{source, REPETITIVE}) {
+				for (boolean buildParseTree : new boolean[]{true, false}) {
+					Pipeline plain = pipeline(input, false, buildParseTree);
+					Pipeline shared = pipeline(input, true, buildParseTree);
+					assertEquals(plain.getAST(), shared.getAST());
+					assertEquals(plain.check(), shared.check());
+					plain.transform();
+					shared.transform();
+					assertEquals(plain.getAST(), shared.getAST());
+					assertEquals(plain.generate(), shared.generate());
+				}
+			}
+		}
+	}
+	@Test
+	void testIdenticalDeclarationsAreShared() {
+		Pipeline pipeline = pipeline(REPETITIVE, true, true);
+		Stylerule first = (Stylerule) pipeline.getAST().root.body.get(1);
+		Stylerule second = (Stylerule) pipeline.getAST().root.body.get(2);
+		Stylerule third = (Stylerule) pipeline.getAST().root.body.get(3);
+		assertSame(first.body.get(0), second.body.get(0));
+		assertSame(first.body.get(1), third.body.get(1));
+		assertSame(first.body.get(0), ((IfClause) third.body.get(2)).body.get(0));
+		//Declarations with a variable or an operation stay unique
+		assertNotSame(first.body.get(2), second.body.get(2));
+		assertTrue(pipeline.getInterner().getDeduplicatedCount() > 0);
+
+		pipeline.check();
+		pipeline.transform();
+		Declaration height = (Declaration) first.body.get(2);
+		assertSame(height.expression, ((Declaration) second.body.get(2)).expression);
+	}
+	@Test
+	void testErrorsAreReportedPerOccurrence() {
+		String source = "p { color: 10px; }\n.a { color: 10px; }\n";
+		Pipeline plain = pipeline(source, false, true);
+		Pipeline shared = pipeline(source, true, true);
+		assertFalse(plain.check());
+		assertFalse(shared.check());
+		assertEquals(plain.getErrors(), shared.getErrors());
+		assertEquals(2, shared.getErrors().size());
+	}
+	@Test
+	void testSharedNodesAreReadOnly() {
+		NodeInterner interner = new NodeInterner();
+		Declaration declaration = new Declaration();
+		declaration.addChild(interner.intern(new PropertyName("width")));
+		declaration.addChild(interner.intern(new PixelLiteral(10)));
+		Declaration shared = interner.intern(declaration);
+		assertTrue(shared.isShared());
+		assertThrows(IllegalStateException.class, () -> shared.addChild(new PixelLiteral(20)));
+
+		Declaration copy = NodeInterner.unshare(shared);
+		assertNotSame(shared, copy);
+		assertFalse(copy.isShared());
+		assertEquals(shared, copy);
+		copy.addChild(new PixelLiteral(20));
+		assertEquals(new PixelLiteral(10), shared.expression);
+	}
+}
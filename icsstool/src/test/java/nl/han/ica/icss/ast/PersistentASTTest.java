@@ -0,0 +1,112 @@
+package nl.han.ica.icss.ast;
+
+import com.google.common.io.Resources;
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.transforms.EvalExpressions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistentASTTest {
+
+	static final String SOURCE = "Width := 10px;\n"
+			+ "p { color: #000000; width: 100%; }\n"
+			+ ".a { height: Width + 2px; }\n"
+			+ "#b { color: #ffffff; }\n";
+
+	Pipeline pipeline(String source, boolean persistent) {
+		Pipeline pipeline = new Pipeline();
+		pipeline.setPersistent(persistent);
+		pipeline.parseString(source);
+		return pipeline;
+	}
+
+	@Test
+	void testSameResultsWithPersistentVersions() throws IOException {
+		for (String resource : new String[]{"level0.icss", "level1.icss", "level2.icss", "level3.icss"}) {
+			String source = Resources.toString(Resources.getResource(resource), StandardCharsets.UTF_8);
+			Pipeline plain = pipeline(source, false);
+			Pipeline persistent = pipeline(source, true);
+			assertEquals(plain.check(), persistent.check());
+			plain.transform();
+			persistent.transform();
+			assertEquals(plain.getAST(), persistent.getAST());
+			assertEquals(plain.generate(), persistent.generate());
+		}
+	}
+	@Test
+	void testTransformSharesUnchangedSubtrees() {
+		Pipeline pipeline = pipeline(SOURCE, true);
+		AST parsed = pipeline.getParsedAST();
+		String before = parsed.toString();
+		assertTrue(pipeline.check());
+		pipeline.transform();
+		AST transformed = pipeline.getAST();
+
+		//The parsed version is unchanged, the path to the evaluated operation was copied
+		assertSame(parsed, pipeline.getParsedAST());
+		assertEquals(before, parsed.toString());
+		assertNotSame(parsed.root, transformed.root);
+		assertNotSame(parsed.root.body.get(2), transformed.root.body.get(2));
+		assertTrue(((Declaration) ((Stylerule) transformed.root.body.get(2)).body.get(0)).expression instanceof Literal);
+		assertTrue(((Declaration) ((Stylerule) parsed.root.body.get(2)).body.get(0)).expression instanceof Operation);
+		//Statements without expressions are shared
+		assertSame(parsed.root.body.get(1), transformed.root.body.get(1));
+		assertSame(parsed.root.body.get(3), transformed.root.body.get(3));
+	}
+	@Test
+	void testTransformReturnsNewVersion() {
+		Pipeline pipeline = pipeline(SOURCE, false);
+		assertTrue(pipeline.check());
+		AST parsed = pipeline.getAST();
+		String before = parsed.toString();
+		AST copy = pipeline(SOURCE, false).getAST();
+
+		EvalExpressions eval = new EvalExpressions();
+		AST transformed = eval.applyToVersion(parsed);
+
+		//The transformed AST is a new frozen version, the AST before the transform did not change
+		assertNotSame(parsed, transformed);
+		assertTrue(parsed.root.isShared());
+		assertTrue(transformed.root.isShared());
+		assertEquals(before, parsed.toString());
+		assertEquals(copy, parsed);
+		assertSame(parsed.getTypes(), transformed.getTypes());
+		assertTrue(((Declaration) ((Stylerule) transformed.root.body.get(2)).body.get(0)).expression instanceof Literal);
+		assertTrue(((Declaration) ((Stylerule) parsed.root.body.get(2)).body.get(0)).expression instanceof Operation);
+
+		//A frozen AST cannot be transformed in place
+		assertThrows(IllegalStateException.class, () -> eval.apply(parsed));
+	}
+	@Test
+	void testFrozenNodesAreReadOnly() {
+		Pipeline pipeline = pipeline(SOURCE, true);
+		Stylesheet root = pipeline.getAST().root;
+		assertTrue(root.isShared());
+		assertThrows(IllegalStateException.class, () -> root.removeChild(root.body.get(0)));
+
+		ASTNode copy = root.withChild(root.body.get(3), root.body.get(1));
+		assertNotSame(root, copy);
+		assertSame(root.body.get(1), copy.getChild(3));
+		assertNotSame(root.body.get(1), root.body.get(3));
+	}
+	@Test
+	void testEditCreatesNewParsedVersion() {
+		Pipeline pipeline = pipeline(SOURCE, true);
+		AST first = pipeline.getParsedAST();
+		pipeline.transform();
+		//An edit after a transformation continues from the parsed version instead of parsing everything
+		int offset = SOURCE.indexOf("#ffffff");
+		pipeline.parseEdit(offset, 7, "#abcdef");
+		AST second = pipeline.getParsedAST();
+
+		assertSame(second, pipeline.getAST());
+		assertNotSame(first.root, second.root);
+		assertSame(first.root.body.get(1), second.root.body.get(1));
+		assertNotSame(first.root.body.get(3), second.root.body.get(3));
+		assertEquals(pipeline(SOURCE.replace("#ffffff", "#abcdef"), false).getAST(), second);
+	}
+}
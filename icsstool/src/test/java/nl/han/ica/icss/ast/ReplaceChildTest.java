@@ -0,0 +1,89 @@
+package nl.han.ica.icss.ast;
+
+import nl.han.ica.icss.ast.literals.PixelLiteral;
+import nl.han.ica.icss.ast.literals.ScalarLiteral;
+import nl.han.ica.icss.ast.operations.AddOperation;
+import nl.han.ica.icss.ast.selectors.TagSelector;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplaceChildTest {
+
+	Stylerule rule(String tag, int width) {
+		Declaration declaration = new Declaration("width");
+		declaration.addChild(new PixelLiteral(width));
+		ArrayList<ASTNode> body = new ArrayList<>();
+		body.add(declaration);
+		return new Stylerule(new TagSelector(tag), body);
+	}
+
+	@Test
+	void testRemoveChildIsByIdentity() {
+		Stylesheet stylesheet = new Stylesheet();
+		Stylerule first = rule("p", 1);
+		Stylerule second = rule("p", 1);
+		Stylerule third = rule("a", 2);
+		stylesheet.addChild(first);
+		stylesheet.addChild(second);
+		stylesheet.addChild(third);
+		assertEquals(first, second);
+
+		stylesheet.removeChild(second);
+		assertEquals(2, stylesheet.getChildCount());
+		assertSame(first, stylesheet.getChild(0));
+		assertSame(third, stylesheet.getChild(1));
+		assertNull(second.getParent());
+
+		//The slots were shifted, removing by slot still finds the right node
+		stylesheet.removeChild(third);
+		assertEquals(1, stylesheet.getChildCount());
+		assertSame(first, stylesheet.getChild(0));
+	}
+	@Test
+	void testReplaceChildKeepsPosition() {
+		Stylesheet stylesheet = new Stylesheet();
+		Stylerule first = rule("p", 1);
+		Stylerule second = rule("a", 2);
+		Stylerule third = rule("div", 3);
+		stylesheet.addChild(first);
+		stylesheet.addChild(second);
+		stylesheet.addChild(third);
+
+		Stylerule replacement = rule("span", 4);
+		stylesheet.replaceChild(second, replacement);
+		assertSame(first, stylesheet.getChild(0));
+		assertSame(replacement, stylesheet.getChild(1));
+		assertSame(third, stylesheet.getChild(2));
+		assertSame(stylesheet, replacement.getParent());
+		assertNull(second.getParent());
+
+		//Replacing a node that is not a child changes nothing
+		stylesheet.replaceChild(second, rule("em", 5));
+		assertEquals(3, stylesheet.getChildCount());
+	}
+	@Test
+	void testReplaceOperand() {
+		AddOperation operation = new AddOperation();
+		PixelLiteral lhs = new PixelLiteral(1);
+		ScalarLiteral rhs = new ScalarLiteral(2);
+		operation.addChild(lhs);
+		operation.addChild(rhs);
+		Declaration declaration = new Declaration("width");
+		declaration.addChild(operation);
+		int hash = declaration.structuralHash();
+
+		PixelLiteral result = new PixelLiteral(3);
+		declaration.replaceChild(operation, result);
+		assertSame(result, declaration.expression);
+		assertSame(declaration, result.getParent());
+		assertNotEquals(hash, declaration.structuralHash());
+
+		ScalarLiteral replacement = new ScalarLiteral(5);
+		operation.replaceChild(rhs, replacement);
+		assertSame(lhs, operation.lhs);
+		assertSame(replacement, operation.rhs);
+	}
+}
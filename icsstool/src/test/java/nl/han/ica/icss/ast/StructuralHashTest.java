@@ -0,0 +1,72 @@
+package nl.han.ica.icss.ast;
+
+import nl.han.ica.icss.ast.literals.PixelLiteral;
+import nl.han.ica.icss.ast.literals.ScalarLiteral;
+import nl.han.ica.icss.ast.operations.AddOperation;
+import nl.han.ica.icss.ast.operations.MultiplyOperation;
+import nl.han.ica.icss.parser.Fixtures;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StructuralHashTest {
+
+	Declaration width(Operation operation, int lhs, int rhs) {
+		operation.addChild(new PixelLiteral(lhs));
+		operation.addChild(new ScalarLiteral(rhs));
+		Declaration declaration = new Declaration("width");
+		declaration.addChild(operation);
+		return declaration;
+	}
+
+	@Test
+	void testEqualTreesHaveEqualHashes() {
+		assertEquals(Fixtures.uncheckedLevel3().root.structuralHash(), Fixtures.uncheckedLevel3().root.structuralHash());
+		assertEquals(width(new AddOperation(), 1, 2).hashCode(), width(new AddOperation(), 1, 2).hashCode());
+		assertNotEquals(Fixtures.uncheckedLevel2().root.structuralHash(), Fixtures.uncheckedLevel3().root.structuralHash());
+	}
+	@Test
+	void testHashIncludesClassAndAttributes() {
+		assertNotEquals(width(new AddOperation(), 1, 2), width(new MultiplyOperation(), 1, 2));
+		assertNotEquals(width(new AddOperation(), 1, 2).structuralHash(), width(new AddOperation(), 1, 3).structuralHash());
+		//The property name is part of a declaration
+		Declaration color = new Declaration("color");
+		color.addChild(new PixelLiteral(1));
+		Declaration background = new Declaration("background-color");
+		background.addChild(new PixelLiteral(1));
+		assertNotEquals(color, background);
+		assertNotEquals(color.structuralHash(), background.structuralHash());
+		Declaration otherColor = new Declaration("color");
+		otherColor.addChild(new PixelLiteral(1));
+		assertEquals(color, otherColor);
+		assertEquals(color.structuralHash(), otherColor.structuralHash());
+	}
+	@Test
+	void testMutationInvalidatesAncestors() {
+		AST ast = Fixtures.uncheckedLevel1();
+		AST other = Fixtures.uncheckedLevel1();
+		assertEquals(ast, other);
+		int before = ast.root.structuralHash();
+
+		Declaration declaration = (Declaration) ((Stylerule) ast.root.body.get(4)).body.get(0);
+		Expression expression = declaration.expression;
+		declaration.removeChild(expression);
+		assertNotEquals(before, ast.root.structuralHash());
+		assertNotEquals(ast, other);
+
+		declaration.addChild(expression);
+		assertEquals(before, ast.root.structuralHash());
+		assertEquals(ast, other);
+		assertSame(declaration, expression.getParent());
+	}
+	@Test
+	void testDirectChangesNeedInvalidation() {
+		Declaration declaration = width(new AddOperation(), 1, 2);
+		int before = declaration.structuralHash();
+		PixelLiteral lhs = (PixelLiteral) ((Operation) declaration.expression).lhs;
+		lhs.value = 5;
+		lhs.invalidateHash();
+		assertNotEquals(before, declaration.structuralHash());
+		assertEquals(width(new AddOperation(), 5, 2), declaration);
+	}
+}
@@ -0,0 +1,84 @@
+package nl.han.ica.icss.ast.flat;
+
+import com.google.common.io.Resources;
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.NodeKind;
+import nl.han.ica.icss.parser.Fixtures;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlatASTTest {
+
+	Pipeline parse(String resource) throws IOException {
+		Pipeline pipeline = new Pipeline();
+		pipeline.parseString(Resources.toString(Resources.getResource(resource), StandardCharsets.UTF_8));
+		return pipeline;
+	}
+
+	@Test
+	void testFixturesRoundTrip() {
+		for (AST ast : new AST[]{Fixtures.uncheckedLevel0(), Fixtures.uncheckedLevel1(), Fixtures.uncheckedLevel2(), Fixtures.uncheckedLevel3()}) {
+			FlatAST flat = FlatAST.of(ast);
+			assertEquals(ast, flat.toAST());
+			assertEquals(ast.toString(), flat.toAST().toString());
+			assertEquals(NodeKind.STYLESHEET, flat.kind(0));
+			assertEquals(flat.size(), flat.end(0));
+			assertEquals(ast.root.body.size(), flat.childCount(0));
+		}
+	}
+	@Test
+	void testSamePipelineResults() throws IOException {
+		for (String resource : new String[]{"level0.icss", "level1.icss", "level2.icss", "level3.icss"}) {
+			Pipeline pipeline = parse(resource);
+			FlatAST flat = FlatAST.of(pipeline.getAST());
+
+			assertEquals(pipeline.check(), flat.check(), resource);
+			pipeline.transform();
+			FlatAST transformed = flat.transform();
+			assertEquals(pipeline.getAST(), transformed.toAST(), resource);
+			assertEquals(pipeline.generate(), transformed.generate(), resource);
+		}
+	}
+	@Test
+	void testCheckErrorsOnFlatNodes() {
+		Pipeline pipeline = new Pipeline();
+		pipeline.parseString("p { width: Undefined; color: 10px; }");
+		assertFalse(pipeline.check());
+
+		FlatAST flat = FlatAST.of(pipeline.getAST());
+		assertFalse(flat.check());
+		assertEquals(pipeline.getAST().getErrors().toString(), flat.getErrors().toString());
+		assertEquals(pipeline.getAST().getErrors().toString(), flat.toAST().getErrors().toString());
+
+		int declarations = 0;
+		for (int node = 0; node < flat.size(); node++) {
+			if (flat.kind(node) == NodeKind.DECLARATION && flat.error(node) != null) {
+				declarations++;
+			}
+		}
+		assertEquals(1, declarations);
+	}
+	@Test
+	void testGlobalVariablesCarryAcrossStatements() {
+		String source = "Size := 10px;\np { width: Size + 2px; color: Size; }\nSize := #ffffff;\na { color: Size; width: Other; }\nOther := 5px;\nb { width: Other; }";
+		Pipeline pipeline = new Pipeline();
+		pipeline.parseString(source);
+		FlatAST flat = FlatAST.of(pipeline.getAST());
+
+		assertEquals(pipeline.check(), flat.check());
+		assertEquals(pipeline.getAST().getErrors().toString(), flat.getErrors().toString());
+		//Checking again gives the same errors, not those of the last check as well
+		assertFalse(flat.check());
+		assertEquals(pipeline.getAST().getErrors().toString(), flat.getErrors().toString());
+
+		pipeline.transform();
+		FlatAST transformed = flat.transform();
+		assertEquals(pipeline.getAST(), transformed.toAST());
+		assertEquals(pipeline.generate(), transformed.generate());
+	}
+}
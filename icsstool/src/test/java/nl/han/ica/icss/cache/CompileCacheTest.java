@@ -0,0 +1,171 @@
+package nl.han.ica.icss.cache;
+
+import nl.han.ica.icss.Pipeline;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompileCacheTest {
+
+	@TempDir
+	Path directory;
+
+	static String key(String source) {
+		return CompileCache.key(source.getBytes(StandardCharsets.UTF_8), "compiler", List.of("EvalExpressions"));
+	}
+
+	List<Path> files(String extension) throws IOException {
+		try (Stream<Path> paths = Files.walk(directory)) {
+			return paths.filter(path -> path.toString().endsWith(extension)).collect(Collectors.toList());
+		}
+	}
+
+	Path entryFile(String key) {
+		return directory.resolve(key.substring(0, 2)).resolve(key + ".entry");
+	}
+
+	@Test
+	void testHitAndMiss() throws IOException {
+		CompileCache cache = new CompileCache(directory, 1 << 20);
+		String key = key("p { width: 10px; }");
+		assertNull(cache.get(key));
+
+		cache.put(key, new CompileCache.Entry("p {\n  width: 10px;\n}\n", Collections.emptyList()));
+		CompileCache.Entry entry = cache.get(key);
+		assertEquals("p {\n  width: 10px;\n}\n", entry.css);
+		assertTrue(entry.errors.isEmpty());
+
+		//A failed compile is cached with its errors and without CSS
+		String failed = key("p { width: Undefined; }");
+		cache.put(failed, new CompileCache.Entry(null, List.of("ERROR: Variable used but undefined")));
+		assertNull(cache.get(failed).css);
+		assertEquals(List.of("ERROR: Variable used but undefined"), cache.get(failed).errors);
+
+		assertEquals(3, cache.getHits());
+		assertEquals(1, cache.getMisses());
+		assertEquals(2, cache.getWrites());
+
+		//A new cache on the same directory finds the entries
+		assertNotNull(new CompileCache(directory, 1 << 20).get(key));
+	}
+
+	@Test
+	void testKeyCoversInputCompilerAndOptions() {
+		byte[] input = "p { width: 10px; }".getBytes(StandardCharsets.UTF_8);
+		String key = CompileCache.key(input, "compiler", List.of("EvalExpressions", "maxErrors=0"));
+		assertEquals(key, CompileCache.key(input.clone(), "compiler", List.of("EvalExpressions", "maxErrors=0")));
+		assertNotEquals(key, CompileCache.key("p { width: 11px; }".getBytes(StandardCharsets.UTF_8),
+				"compiler", List.of("EvalExpressions", "maxErrors=0")));
+		assertNotEquals(key, CompileCache.key(input, "other compiler", List.of("EvalExpressions", "maxErrors=0")));
+		assertNotEquals(key, CompileCache.key(input, "compiler", List.of("EvalExpressions", "maxErrors=1")));
+		assertNotEquals(key, CompileCache.key(input, "compiler", List.of("EvalExpressions")));
+	}
+
+	@Test
+	void testKeyOfFileEqualsKeyOfBytes() throws IOException {
+		Path input = directory.resolve("input.icss");
+		Files.writeString(input, "p { width: 10px; }");
+		assertEquals(key("p { width: 10px; }"), CompileCache.key(input, "compiler", List.of("EvalExpressions")));
+	}
+
+	@Test
+	void testFingerprintIsStable() {
+		String fingerprint = CompilerFingerprint.get();
+		assertTrue(fingerprint.startsWith(Pipeline.VERSION + "-"));
+		assertEquals(fingerprint, CompilerFingerprint.get());
+	}
+
+	@Test
+	void testCorruptEntriesAreMisses() throws IOException {
+		CompileCache cache = new CompileCache(directory, 1 << 20);
+		String key = key("p { width: 10px; }");
+		cache.put(key, new CompileCache.Entry("p {\n  width: 10px;\n}\n", Collections.emptyList()));
+		Path file = entryFile(key);
+		assertTrue(Files.exists(file));
+
+		//Wrong magic number
+		Files.write(file, new byte[]{'n', 'o', 'p', 'e', 0, 0, 0, 1, 0, 0, 0, 0, 0});
+		assertNull(cache.get(key));
+
+		//Right magic number, other format version
+		try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+			out.writeInt(0x49435343);
+			out.writeInt(99);
+			out.writeInt(0);
+			out.writeBoolean(false);
+		}
+		assertNull(cache.get(key));
+
+		//Truncated
+		cache.put(key, new CompileCache.Entry("p {\n  width: 10px;\n}\n", Collections.emptyList()));
+		byte[] bytes = Files.readAllBytes(file);
+		Files.write(file, Arrays.copyOf(bytes, bytes.length - 4));
+		assertNull(cache.get(key));
+
+		assertEquals(0, cache.getHits());
+		assertEquals(3, cache.getMisses());
+	}
+
+	@Test
+	void testPutReplacesAtomically() throws IOException {
+		CompileCache cache = new CompileCache(directory, 1 << 20);
+		String key = key("p { width: 10px; }");
+		cache.put(key, new CompileCache.Entry("first", Collections.emptyList()));
+		cache.put(key, new CompileCache.Entry("second", List.of("warning")));
+
+		assertEquals("second", cache.get(key).css);
+		assertEquals(List.of(entryFile(key)), files(".entry"));
+		//The temporary files were moved into place, none are left behind
+		assertTrue(files(".tmp").isEmpty());
+		//Replacing an entry does not count it twice
+		assertEquals(Files.size(entryFile(key)), cache.getSize());
+	}
+
+	@Test
+	void testEvictsLeastRecentlyUsedDownToNinetyPercent() throws IOException {
+		String css = "x".repeat(150);
+		CompileCache cache = new CompileCache(directory, 1 << 20);
+		String[] keys = new String[6];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = key("p" + i + " { width: 10px; }");
+			cache.put(keys[i], new CompileCache.Entry(css, Collections.emptyList()));
+		}
+		long entrySize = Files.size(entryFile(keys[0]));
+
+		//Room for five entries. Entry 0 was written first, but used after entry 1.
+		long maxBytes = entrySize * 5 + entrySize / 2;
+		for (int i = 0; i < keys.length; i++) {
+			Files.setLastModifiedTime(entryFile(keys[i]), FileTime.fromMillis(1_000_000L * (i + 1)));
+		}
+		Files.setLastModifiedTime(entryFile(keys[0]), FileTime.fromMillis(2_500_000L));
+		cache = new CompileCache(directory, maxBytes);
+		assertEquals(entrySize * 6, cache.getSize());
+
+		String newest = key("p6 { width: 10px; }");
+		cache.put(newest, new CompileCache.Entry(css, Collections.emptyList()));
+
+		//Seven entries over a limit of five and a half: entries are removed until at most 90% is used
+		assertTrue(cache.getSize() <= maxBytes / 10 * 9);
+		assertEquals(4 * entrySize, cache.getSize());
+		assertEquals(3, cache.getEvictions());
+		assertFalse(Files.exists(entryFile(keys[1])));
+		assertFalse(Files.exists(entryFile(keys[0])));
+		assertFalse(Files.exists(entryFile(keys[2])));
+		assertTrue(Files.exists(entryFile(keys[3])));
+		assertTrue(Files.exists(entryFile(newest)));
+		assertEquals(4, files(".entry").size());
+	}
+}
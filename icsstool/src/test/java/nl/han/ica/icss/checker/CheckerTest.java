@@ -0,0 +1,271 @@
+package nl.han.ica.icss.checker;
+
+import com.google.common.io.Resources;
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.Declaration;
+import nl.han.ica.icss.ast.Stylerule;
+import nl.han.ica.icss.ast.types.ExpressionType;
+import nl.han.ica.icss.ast.types.Operator;
+import nl.han.ica.icss.ast.types.OperatorTable;
+import nl.han.ica.icss.ast.types.TypeTable;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CheckerTest {
+
+	static final String INVALID = "Flag := TRUE;\nColor := #ff0000;\n"
+			+ "p { color: 10px; width: Flag; height: Color; }\n"
+			+ "a { Local := 5px; width: Local; color: Undefined; if[Color] { color: Flag; } }\n"
+			+ "#b { background-color: Color; width: Local; }\n";
+
+	List<String> errors(String source, boolean fusedPasses) {
+		return errors(source, fusedPasses, false);
+	}
+
+	List<String> errors(String source, boolean fusedPasses, boolean parallel) {
+		Pipeline pipeline = new Pipeline();
+		pipeline.parseString(source);
+		AST ast = pipeline.getAST();
+		Checker checker = new Checker();
+		checker.setFusedPasses(fusedPasses);
+		checker.setParallel(parallel);
+		checker.check(ast);
+		return ast.getErrors().stream().map(SemanticError::toString).collect(Collectors.toList());
+	}
+
+	@Test
+	void testFusedPassesFindTheSameErrors() throws IOException {
+		for (String resource : new String[]{"level0.icss", "level1.icss", "level2.icss", "level3.icss"}) {
+			String source = Resources.toString(Resources.getResource(resource), StandardCharsets.UTF_8);
+			assertEquals(errors(source, false), errors(source, true), resource);
+		}
+		assertEquals(errors(INVALID, false), errors(INVALID, true));
+	}
+	@Test
+	void testErrorsInSourceOrder() {
+		//color: Undefined only reports the undefined variable
+		List<String> errors = errors(INVALID, true);
+		assertEquals(7, errors.size(), errors.toString());
+		assertTrue(errors.get(0).contains("color declaration"));
+		assertTrue(errors.get(1).contains("width declaration"));
+	}
+	@Test
+	void testOperandsMustFitTheOperation() {
+		List<String> errors = errors("p { width: 10px + 5%; }", true);
+		assertEquals(1, errors.size(), errors.toString());
+		assertTrue(errors.get(0).contains("Operand types"));
+		//Not reported again by the declaration, nor for an undefined operand
+		assertEquals(1, errors("p { color: 10px * 5px; }", true).size());
+		assertEquals(1, errors("p { width: Undefined + 5%; }", true).size());
+		assertEquals(errors("p { width: 10px - 5%; }", true), errors("p { width: 10px - 5%; }", false));
+
+		Pipeline pipeline = new Pipeline();
+		pipeline.parseString("p { width: 10px + 5%; }");
+		assertFalse(pipeline.check());
+	}
+	@Test
+	void testUndefinedConditionIsReportedOnce() {
+		for (boolean fused : new boolean[]{true, false}) {
+			List<String> errors = errors("a { if[A] { width: 10px; } }", fused);
+			assertEquals(1, errors.size(), errors.toString());
+			assertTrue(errors.get(0).contains("undefined"));
+		}
+		assertEquals(1, errors("Size := 10px;\na { if[Size] { width: 10px; } }", true).size());
+	}
+	@Test
+	void testDeclarationValuesFollowThePropertySchema() {
+		//Properties are matched by name, not by a part of it
+		assertEquals(0, errors("p { line-height: 2; border-width: 1px; color-adjust: 5px; }", true).size());
+		assertEquals(1, errors("p { max-width: #ffffff; }", true).size());
+		assertEquals(1, errors("p { width: TRUE; }", true).size());
+		assertEquals(0, errors("W := 10px;\np { width: W * 2; margin: 50%; }", true).size());
+	}
+	@Test
+	void testVariablesOfARuleAreOnlyVisibleInIt() {
+		assertEquals(0, errors("p { On := TRUE; Size := 10px; if[On] { width: Size; } }", true).size());
+		assertEquals(1, errors("p { Size := 10px; }\na { width: Size; }", true).size());
+		//A local variable hides a global one until the end of the rule
+		assertEquals(1, errors("Main := #ffffff;\np { Main := 10px; color: Main; }\na { color: Main; }", true).size());
+	}
+	@Test
+	void testParallelCheckFindsTheSameErrorsInOrder() throws IOException {
+		for (String resource : new String[]{"level0.icss", "level1.icss", "level2.icss", "level3.icss"}) {
+			String source = Resources.toString(Resources.getResource(resource), StandardCharsets.UTF_8);
+			assertEquals(errors(source, true), errors(source, true, true), resource);
+		}
+		//Many rules, with global variables assigned (and redefined) between them
+		StringBuilder source = new StringBuilder();
+		for (int i = 0; i < 3000; i++) {
+			if (i % 700 == 0) {
+				source.append("Main := ").append(i % 1400 == 0 ? "#ffffff" : "10px").append(";\n");
+			}
+			source.append(i % 5 == 0 ? "p" : ".c" + i).append(" { Local := TRUE; color: Main; width: W").append(i % 11).append("; if[Local] { height: Main; } }\n");
+		}
+		List<String> sequential = errors(source.toString(), true);
+		assertFalse(sequential.isEmpty());
+		assertEquals(sequential, errors(source.toString(), true, true));
+		assertEquals(errors(source.toString(), false), errors(source.toString(), false, true));
+	}
+	@Test
+	void testIncrementalCheckOnlyChecksWhatChanged() {
+		Pipeline pipeline = new Pipeline();
+		pipeline.setIncrementalCheck(true);
+		pipeline.parseString(INVALID);
+		pipeline.check();
+		assertEquals(5, pipeline.getChecker().getCheckedStatementCount());
+
+		//An edited rule is checked again, the errors of the other rules are kept
+		String source = edit(pipeline, INVALID, "width: Local; }", "width: 5px; }");
+		pipeline.check();
+		assertEquals(1, pipeline.getChecker().getCheckedStatementCount());
+		assertEquals(errors(source, true), incrementalErrors(pipeline));
+
+		//A changed global variable checks the rules that reference it
+		source = edit(pipeline, source, "#ff0000", "10px");
+		pipeline.check();
+		assertEquals(4, pipeline.getChecker().getCheckedStatementCount());
+		assertEquals(errors(source, true), incrementalErrors(pipeline));
+
+		source = edit(pipeline, source, "width: Flag; ", "");
+		pipeline.check();
+		assertEquals(1, pipeline.getChecker().getCheckedStatementCount());
+		assertEquals(errors(source, true), incrementalErrors(pipeline));
+
+		//So does a removed one (the edit parses the next statement again as well)
+		source = edit(pipeline, source, "Flag := TRUE;\n", "");
+		pipeline.check();
+		assertEquals(4, pipeline.getChecker().getCheckedStatementCount());
+		assertEquals(errors(source, true), incrementalErrors(pipeline));
+
+		//Nothing changed, nothing to check
+		pipeline.check();
+		assertEquals(0, pipeline.getChecker().getCheckedStatementCount());
+		assertEquals(errors(source, true), incrementalErrors(pipeline));
+	}
+
+	@Test
+	void testIncrementalCheckSeesRenamedProperties() {
+		Pipeline pipeline = new Pipeline();
+		pipeline.setIncrementalCheck(true);
+		pipeline.parseString("p { width: 10px; }\na { width: 5px; }\n");
+		assertTrue(pipeline.check());
+
+		//A declaration renamed in place is a changed statement
+		Declaration declaration = (Declaration) ((Stylerule) pipeline.getAST().root.body.get(0)).body.get(0);
+		declaration.property.name = "color";
+		declaration.property.invalidateHash();
+		assertFalse(pipeline.check());
+		assertEquals(1, pipeline.getChecker().getCheckedStatementCount());
+		assertEquals(errors("p { color: 10px; }\na { width: 5px; }\n", true), incrementalErrors(pipeline));
+	}
+
+	@Test
+	void testTypesOfExpressionsAreComputedOnce() {
+		Pipeline pipeline = new Pipeline();
+		pipeline.parseString("W := 10px;\nS := 3;\np { width: W + 2 * S * 1px; height: W * S; color: W; }\n");
+		pipeline.check();
+		AST ast = pipeline.getAST();
+		TypeTable types = ast.getTypes();
+		Stylerule rule = (Stylerule) ast.root.body.get(2);
+		assertEquals(ExpressionType.PIXEL, types.get(((Declaration) rule.body.get(0)).expression));
+		assertEquals(ExpressionType.PIXEL, types.get(((Declaration) rule.body.get(1)).expression));
+		assertEquals(ExpressionType.PIXEL, types.get(((Declaration) rule.body.get(2)).expression));
+		//The operations and references of the three declarations, literals are not stored
+		assertEquals(9, types.size());
+		assertEquals(1, ast.getErrors().size());
+		//Pixels cannot be multiplied by pixels
+		assertEquals(ExpressionType.UNDEFINED, OperatorTable.resultType(Operator.MULTIPLY, ExpressionType.PIXEL, ExpressionType.PIXEL));
+
+		pipeline.transform();
+		assertTrue(pipeline.generate().contains("width: 16px"));
+		assertTrue(pipeline.generate().contains("height: 30px"));
+	}
+
+	@Test
+	void testRepeatedErrorsAreCollapsed() {
+		StringBuilder source = new StringBuilder("Flag := TRUE;\n");
+		for (int i = 0; i < 1000; i++) {
+			source.append(".c").append(i).append(" { width: Undefined; if[Flag] { color: 10px; } }\n");
+		}
+		Pipeline pipeline = new Pipeline();
+		DiagnosticCollector diagnostics = new DiagnosticCollector();
+		pipeline.setDiagnosticListener(diagnostics);
+		pipeline.parseString(source.toString());
+		assertFalse(pipeline.check());
+		//Streamed to the listener, not turned into strings by the pipeline
+		assertTrue(pipeline.getErrors().isEmpty());
+		assertEquals(2000, pipeline.getAST().getErrors().size());
+
+		assertEquals(2000, diagnostics.getErrorCount());
+		assertEquals(2, diagnostics.getEntries().size());
+		assertEquals(ErrorCode.UNDEFINED_VARIABLE, diagnostics.getEntries().get(0).getFirst().getCode());
+		assertEquals("ERROR: Variable used but undefined in current scope: Undefined (1000 times)", diagnostics.getMessages().get(0));
+		assertEquals("ERROR: Expected color value for color declaration: 10px (1000 times)", diagnostics.getMessages().get(1));
+	}
+	@Test
+	void testCheckStopsAfterTheErrorLimit() {
+		StringBuilder source = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			source.append(".c").append(i).append(" { width: V").append(i).append("; }\n");
+		}
+		for (boolean parallel : new boolean[]{false, true}) {
+			Pipeline pipeline = new Pipeline();
+			pipeline.parseString(source.toString());
+			Checker checker = new Checker();
+			checker.setParallel(parallel);
+			DiagnosticCollector diagnostics = new DiagnosticCollector(5);
+			checker.setDiagnosticListener(diagnostics);
+			checker.check(pipeline.getAST());
+
+			assertEquals(5, diagnostics.getErrorCount());
+			assertEquals(5, pipeline.getAST().getErrors().size());
+			assertEquals("Stopped checking after 5 errors", diagnostics.getMessages().get(5));
+			if (!parallel) {
+				assertEquals(5, checker.getCheckedStatementCount());
+			}
+		}
+	}
+	@Test
+	void testParallelCheckCancelsTheRulesAfterTheErrorLimit() {
+		StringBuilder source = new StringBuilder();
+		for (int i = 0; i < 20000; i++) {
+			source.append(".c").append(i).append(" { width: V").append(i).append("; }\n");
+		}
+		Pipeline pipeline = new Pipeline();
+		pipeline.parseString(source.toString());
+		Checker checker = new Checker();
+		checker.setParallel(true);
+		DiagnosticCollector diagnostics = new DiagnosticCollector(5);
+		checker.setDiagnosticListener(diagnostics);
+		checker.check(pipeline.getAST());
+
+		assertEquals(5, pipeline.getAST().getErrors().size());
+		//The errors are those of the first five rules, as in a sequential check
+		List<String> expected = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			expected.add("ERROR: Variable used but undefined in current scope: V" + i);
+		}
+		expected.add("Stopped checking after 5 errors");
+		assertEquals(expected, diagnostics.getMessages());
+		//The first task is checked to its end, the tasks after it stop when they see the limit was reached
+		assertTrue(checker.getCheckedStatementCount() < 20000, "checked " + checker.getCheckedStatementCount());
+	}
+
+	static String edit(Pipeline pipeline, String source, String removed, String inserted) {
+		int offset = source.indexOf(removed);
+		pipeline.parseEdit(offset, removed.length(), inserted);
+		return source.substring(0, offset) + inserted + source.substring(offset + removed.length());
+	}
+
+	static List<String> incrementalErrors(Pipeline pipeline) {
+		return pipeline.getAST().getErrors().stream().map(SemanticError::toString).collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,33 @@
+package nl.han.ica.icss.checker;
+
+import nl.han.ica.icss.ast.types.ExpressionType;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.EnumSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PropertySchemaTest {
+
+	@Test
+	void testStandardSchema() {
+		PropertySchema schema = PropertySchema.getStandard();
+		assertEquals(EnumSet.of(ExpressionType.COLOR), schema.getAllowedTypes("background-color"));
+		assertEquals(EnumSet.of(ExpressionType.PIXEL, ExpressionType.PERCENTAGE), schema.getAllowedTypes("height"));
+		assertNull(schema.getAllowedTypes("unknown-property"));
+		assertEquals("Expected pixel or percentage value for width declaration", schema.getMessage("width"));
+	}
+	@Test
+	void testParse() throws IOException {
+		PropertySchema schema = PropertySchema.parse(new BufferedReader(new StringReader(
+				"# comment\n\nopacity: SCALAR PERCENTAGE # trailing comment\n")));
+		assertEquals(EnumSet.of(ExpressionType.SCALAR, ExpressionType.PERCENTAGE), schema.getAllowedTypes("opacity"));
+		assertThrows(IllegalArgumentException.class, () -> PropertySchema.parse(new BufferedReader(new StringReader("width PIXEL\n"))));
+		IllegalArgumentException unknown = assertThrows(IllegalArgumentException.class,
+				() -> PropertySchema.parse(new BufferedReader(new StringReader("# units\nwidth: PIXEL INCH\n"))));
+		assertEquals("Line 2 has an unknown type 'INCH': width: PIXEL INCH", unknown.getMessage());
+	}
+}
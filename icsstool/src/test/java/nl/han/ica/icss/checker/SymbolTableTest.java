@@ -0,0 +1,51 @@
+package nl.han.ica.icss.checker;
+
+import nl.han.ica.icss.ast.types.ExpressionType;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SymbolTableTest {
+
+	@Test
+	void testIdsAreInterned() {
+		SymbolTable symbols = new SymbolTable();
+		int width = symbols.id("Width");
+		assertEquals(width, symbols.id(new String("Width")));
+		assertNotEquals(width, symbols.id("Height"));
+		assertFalse(symbols.isDefined(width));
+	}
+	@Test
+	void testPopRestoresHiddenDeclarations() {
+		SymbolTable symbols = new SymbolTable();
+		int color = symbols.id("Color");
+		int local = symbols.id("Local");
+		symbols.declare(color, ExpressionType.COLOR);
+
+		symbols.push();
+		symbols.declare(color, ExpressionType.PIXEL);
+		symbols.declare(color, ExpressionType.BOOL);
+		symbols.declare(local, null);
+		assertEquals(ExpressionType.BOOL, symbols.typeOf(color));
+		assertTrue(symbols.isDefined(local));
+		assertEquals(ExpressionType.UNDEFINED, symbols.typeOf(local));
+		symbols.pop();
+
+		assertEquals(ExpressionType.COLOR, symbols.typeOf(color));
+		assertFalse(symbols.isDefined(local));
+		assertThrows(IllegalStateException.class, symbols::pop);
+	}
+	@Test
+	void testManyScopesAndNames() {
+		SymbolTable symbols = new SymbolTable();
+		for (int i = 0; i < 1000; i++) {
+			symbols.push();
+			symbols.declare(symbols.id("V" + i), ExpressionType.SCALAR);
+		}
+		for (int i = 999; i >= 0; i--) {
+			assertEquals(ExpressionType.SCALAR, symbols.typeOf(symbols.id("V" + i)));
+			symbols.pop();
+			assertFalse(symbols.isDefined(symbols.id("V" + i)));
+		}
+	}
+}
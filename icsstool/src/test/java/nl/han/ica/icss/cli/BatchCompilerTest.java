@@ -0,0 +1,98 @@
+package nl.han.ica.icss.cli;
+
+import com.google.common.io.Resources;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchCompilerTest {
+
+	@TempDir
+	Path directory;
+
+	Path sources() throws IOException {
+		Path sources = directory.resolve("src");
+		for (int i = 0; i <= 3; i++) {
+			String level = Resources.toString(Resources.getResource("level" + i + ".icss"), StandardCharsets.UTF_8);
+			Path nested = Files.createDirectories(sources.resolve("level" + i));
+			for (int copy = 0; copy < 5; copy++) {
+				Files.writeString(nested.resolve("copy" + copy + ".icss"), level.replace("500px", (copy + 1) + "00px"));
+			}
+		}
+		Files.writeString(sources.resolve("undefined.icss"), "p { width: Undefined; }");
+		Files.writeString(sources.resolve("syntax.icss"), "p { width 10px; }");
+		return sources;
+	}
+
+	String compile(Path sources, Path output, int threads) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ByteArrayOutputStream err = new ByteArrayOutputStream();
+		BatchCompiler compiler = new BatchCompiler(output, threads,
+				new PrintStream(out, true, StandardCharsets.UTF_8), new PrintStream(err, true, StandardCharsets.UTF_8));
+		assertEquals(2, compiler.compile(List.of(sources)));
+		return out.toString(StandardCharsets.UTF_8);
+	}
+
+	Map<Path, String> outputs(Path output) throws IOException {
+		Map<Path, String> files = new TreeMap<>();
+		try (Stream<Path> paths = Files.walk(output)) {
+			for (Path path : paths.filter(Files::isRegularFile).collect(Collectors.toList())) {
+				files.put(output.relativize(path), Files.readString(path));
+			}
+		}
+		return files;
+	}
+
+	@Test
+	void testSameOutputForAnyNumberOfThreads() throws IOException {
+		Path sources = sources();
+		String sequential = compile(sources, directory.resolve("one"), 1);
+		String parallel = compile(sources, directory.resolve("four"), 4);
+
+		assertEquals(sequential, parallel);
+		assertTrue(sequential.endsWith("Compiled 22 file(s), 2 failed" + System.lineSeparator()), sequential);
+		Map<Path, String> expected = outputs(directory.resolve("one"));
+		assertEquals(20, expected.size());
+		assertEquals(expected, outputs(directory.resolve("four")));
+	}
+
+	@Test
+	void testThreadsMustBePositive() {
+		assertEquals(4, BatchCompiler.parseNumber("4", 1, Integer.MAX_VALUE));
+		assertEquals(-1, BatchCompiler.parseNumber("0", 1, Integer.MAX_VALUE));
+		assertEquals(-1, BatchCompiler.parseNumber("-2", 1, Integer.MAX_VALUE));
+		assertEquals(-1, BatchCompiler.parseNumber("many", 1, Integer.MAX_VALUE));
+		assertEquals(-1, BatchCompiler.parseNumber("4294967296", 1, Integer.MAX_VALUE));
+		assertThrows(IllegalArgumentException.class, () -> new BatchCompiler(null, 0, System.out, System.err));
+	}
+
+	@Test
+	void testCacheSizeMustFitInBytes() {
+		assertEquals(256, BatchCompiler.parseNumber("256", 1, BatchCompiler.MAX_CACHE_MEGABYTES));
+		assertEquals(-1, BatchCompiler.parseNumber("0", 1, BatchCompiler.MAX_CACHE_MEGABYTES));
+		assertEquals(-1, BatchCompiler.parseNumber("-1", 1, BatchCompiler.MAX_CACHE_MEGABYTES));
+		assertEquals(-1, BatchCompiler.parseNumber("256MB", 1, BatchCompiler.MAX_CACHE_MEGABYTES));
+		assertEquals(-1, BatchCompiler.parseNumber(String.valueOf(BatchCompiler.MAX_CACHE_MEGABYTES + 1), 1, BatchCompiler.MAX_CACHE_MEGABYTES));
+	}
+
+	@Test
+	void testMaxErrorsIsZeroOrMore() {
+		assertEquals(0, BatchCompiler.parseNumber("0", 0, Integer.MAX_VALUE));
+		assertEquals(3, BatchCompiler.parseNumber("3", 0, Integer.MAX_VALUE));
+		assertEquals(-1, BatchCompiler.parseNumber("-3", 0, Integer.MAX_VALUE));
+		assertEquals(-1, BatchCompiler.parseNumber("all", 0, Integer.MAX_VALUE));
+	}
+}
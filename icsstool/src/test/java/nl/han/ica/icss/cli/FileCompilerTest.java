@@ -0,0 +1,56 @@
+package nl.han.ica.icss.cli;
+
+import nl.han.ica.icss.cache.CompileCache;
+import nl.han.ica.icss.cache.CompilerFingerprint;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileCompilerTest {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void testFileChangedAfterTheKeyIsNotCachedUnderIt() throws IOException {
+		Path input = directory.resolve("input.icss");
+		String before = "p { width: 10px; }";
+		Files.writeString(input, before);
+
+		//The lookup comes after the key and before the parse, the file is rewritten there
+		CompileCache cache = new CompileCache(directory.resolve("cache"), 1 << 20) {
+			boolean rewritten = false;
+
+			@Override
+			public Entry get(String key) {
+				if (!rewritten) {
+					rewritten = true;
+					try {
+						Files.writeString(input, "p { width: 20px; }");
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}
+				return super.get(key);
+			}
+		};
+		FileCompiler compiler = new FileCompiler(cache);
+		CompileResult result = compiler.compile(input);
+
+		//The result and its entry are those of the contents that were hashed
+		assertTrue(result.getCss().contains("width: 10px"), result.getCss());
+		String oldKey = CompileCache.key(before.getBytes(StandardCharsets.UTF_8), CompilerFingerprint.get(), compiler.getOptions());
+		assertTrue(cache.get(oldKey).css.contains("width: 10px"));
+
+		//The new contents get their own entry
+		assertTrue(compiler.compile(input).getCss().contains("width: 20px"));
+		assertEquals(2, cache.getWrites());
+	}
+}
@@ -0,0 +1,97 @@
+package nl.han.ica.icss.cli;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WatchDaemonTest {
+
+	@TempDir
+	Path directory;
+
+	static void awaitTrue(BooleanSupplier condition, String description) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (!condition.getAsBoolean()) {
+			if (System.currentTimeMillis() > deadline)
+				fail("Timed out waiting until " + description);
+			Thread.sleep(10);
+		}
+	}
+
+	static String read(Path file) {
+		try {
+			return Files.readString(file);
+		} catch (IOException e) {
+			return "";
+		}
+	}
+
+	@Test
+	void testCreateModifyAndDelete() throws Exception {
+		Path sources = Files.createDirectory(directory.resolve("src"));
+		Path outputs = directory.resolve("out");
+		Path first = sources.resolve("first.icss");
+		Files.writeString(first, "p { width: 10px; }");
+
+		ByteArrayOutputStream log = new ByteArrayOutputStream();
+		WatchDaemon daemon = new WatchDaemon(List.of(sources), outputs, 20, new PrintStream(log, true, StandardCharsets.UTF_8));
+		AtomicReference<IOException> failure = new AtomicReference<>();
+		Thread thread = new Thread(() -> {
+			try {
+				daemon.run();
+			} catch (IOException e) {
+				failure.set(e);
+			} catch (InterruptedException ignored) {
+				//Stopped by the test
+			}
+		});
+		thread.start();
+		try {
+			//Initial build
+			Path firstOutput = outputs.resolve("first.css");
+			awaitTrue(() -> read(firstOutput).contains("width: 10px"), "the initial build wrote first.css");
+
+			//Modified source
+			Files.writeString(first, "p { width: 20px + 2px; }");
+			awaitTrue(() -> read(firstOutput).contains("width: 22px"), "first.css was rebuilt");
+
+			//New source in a new directory
+			Path nested = Files.createDirectory(sources.resolve("nested"));
+			Files.writeString(nested.resolve("second.icss"), "a { color: #ff0000; }");
+			Path secondOutput = outputs.resolve("nested").resolve("second.css");
+			awaitTrue(() -> read(secondOutput).contains("color: #ff0000"), "nested/second.css was written");
+
+			//Deleted sources take their outputs along
+			Files.delete(first);
+			awaitTrue(() -> Files.notExists(firstOutput), "first.css was removed");
+			Files.delete(nested.resolve("second.icss"));
+			Files.delete(nested);
+			awaitTrue(() -> Files.notExists(secondOutput), "nested/second.css was removed");
+		} finally {
+			thread.interrupt();
+			thread.join(10_000);
+		}
+		assertFalse(thread.isAlive());
+		assertNull(failure.get());
+		assertFalse(log.toString(StandardCharsets.UTF_8).contains("error"), log.toString(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	void testDebounceMustNotBeNegative() {
+		assertEquals(0, BatchCompiler.parseNumber("0", 0, Long.MAX_VALUE));
+		assertEquals(-1, BatchCompiler.parseNumber("-50", 0, Long.MAX_VALUE));
+		assertEquals(-1, BatchCompiler.parseNumber("50ms", 0, Long.MAX_VALUE));
+		assertThrows(IllegalArgumentException.class, () -> new WatchDaemon(List.of(directory), null, -1, System.out));
+	}
+}
@@ -0,0 +1,69 @@
+package nl.han.ica.icss.parser;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsciiByteSequenceTest {
+
+	static ByteBuffer direct(byte[] bytes) {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+		buffer.put(bytes).flip();
+		return buffer;
+	}
+
+	@Test
+	void testIsAscii() {
+		assertTrue(AsciiByteSequence.isAscii(direct("p {\r\n\twidth: 10px;\r\n}\r\n".getBytes(StandardCharsets.US_ASCII))));
+		assertTrue(AsciiByteSequence.isAscii(direct(new byte[0])));
+		assertFalse(AsciiByteSequence.isAscii(direct("/* café */".getBytes(StandardCharsets.UTF_8))));
+		assertFalse(AsciiByteSequence.isAscii(direct("20€".getBytes(StandardCharsets.UTF_8))));
+
+		//Only the remaining bytes count
+		ByteBuffer buffer = direct("é p {}".getBytes(StandardCharsets.UTF_8));
+		buffer.position(2);
+		assertTrue(AsciiByteSequence.isAscii(buffer));
+	}
+
+	@Test
+	void testCharacters() {
+		String text = "a\r\nb";
+		AsciiByteSequence sequence = new AsciiByteSequence(direct(text.getBytes(StandardCharsets.US_ASCII)));
+		assertEquals(4, sequence.length());
+		for (int i = 0; i < text.length(); i++) {
+			assertEquals(text.charAt(i), sequence.charAt(i));
+		}
+		assertEquals(text, sequence.toString());
+		assertTrue(CharSequence.compare(text, sequence) == 0);
+	}
+
+	@Test
+	void testStartsAtThePosition() {
+		ByteBuffer buffer = direct("xxa\r\nb".getBytes(StandardCharsets.US_ASCII));
+		buffer.position(2);
+		AsciiByteSequence sequence = new AsciiByteSequence(buffer);
+		assertEquals(4, sequence.length());
+		assertEquals('a', sequence.charAt(0));
+		assertEquals("a\r\nb", sequence.toString());
+		assertEquals("\r\n", sequence.subSequence(1, 3).toString());
+	}
+
+	@Test
+	void testSubSequenceAtTheBoundaries() {
+		AsciiByteSequence sequence = new AsciiByteSequence(direct("a\r\nb".getBytes(StandardCharsets.US_ASCII)));
+		assertEquals("a\r\nb", sequence.subSequence(0, 4).toString());
+		assertEquals("", sequence.subSequence(0, 0).toString());
+		assertEquals("", sequence.subSequence(4, 4).toString());
+		assertEquals("b", sequence.subSequence(3, 4).toString());
+
+		CharSequence inner = sequence.subSequence(1, 4).subSequence(1, 3);
+		assertEquals(2, inner.length());
+		assertEquals('\n', inner.charAt(0));
+		assertEquals("\nb", inner.toString());
+		//toString does not move the buffer
+		assertEquals("\nb", inner.toString());
+	}
+}
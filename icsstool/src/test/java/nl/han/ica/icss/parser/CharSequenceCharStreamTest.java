@@ -0,0 +1,103 @@
+package nl.han.ica.icss.parser;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.misc.Interval;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CharSequenceCharStream must behave like the CharStream of CharStreams.fromString.
+ */
+class CharSequenceCharStreamTest {
+
+	static final String CRLF = "p {\r\n\twidth: 10px;\r\n}\r\n";
+
+	void assertSameText(String input, CharStream stream) {
+		CharStream expected = CharStreams.fromString(input);
+		assertEquals(expected.size(), stream.size());
+		for (int a = 0; a <= input.length() + 1; a++) {
+			for (int b = a - 1; b <= input.length() + 1; b++) {
+				Interval interval = Interval.of(a, b);
+				assertEquals(expected.getText(interval), stream.getText(interval), interval.toString());
+			}
+		}
+	}
+
+	void assertSameCharacters(String input, CharStream stream) {
+		CharStream expected = CharStreams.fromString(input);
+		while (true) {
+			for (int i = -2; i <= 2; i++) {
+				assertEquals(expected.LA(i), stream.LA(i), "LA(" + i + ") at " + expected.index());
+			}
+			assertEquals(expected.index(), stream.index());
+			if (expected.LA(1) == IntStream.EOF)
+				break;
+			expected.consume();
+			stream.consume();
+		}
+	}
+
+	@Test
+	void testCrlfInput() {
+		assertSameText(CRLF, new CharSequenceCharStream(CRLF));
+		assertSameCharacters(CRLF, new CharSequenceCharStream(CRLF));
+	}
+
+	@Test
+	void testNonAsciiInput() {
+		String input = "/* café, 20€ */ p { width: 10px; }";
+		assertSameText(input, new CharSequenceCharStream(input));
+		assertSameCharacters(input, new CharSequenceCharStream(input));
+	}
+
+	@Test
+	void testMappedAsciiInput() {
+		ByteBuffer direct = ByteBuffer.allocateDirect(CRLF.length());
+		direct.put(CRLF.getBytes(StandardCharsets.US_ASCII)).flip();
+		assertSameText(CRLF, new CharSequenceCharStream(new AsciiByteSequence(direct)));
+		assertSameCharacters(CRLF, new CharSequenceCharStream(new AsciiByteSequence(direct)));
+	}
+
+	@Test
+	void testTextAtTheBoundaries() {
+		CharStream stream = new CharSequenceCharStream("a\r\nb");
+		assertEquals("a\r\nb", stream.getText(Interval.of(0, 3)));
+		assertEquals("a", stream.getText(Interval.of(0, 0)));
+		assertEquals("b", stream.getText(Interval.of(3, 3)));
+		//The end is clipped to the input, empty and negative intervals have no text
+		assertEquals("\nb", stream.getText(Interval.of(2, 10)));
+		assertEquals("", stream.getText(Interval.of(4, 4)));
+		assertEquals("", stream.getText(Interval.of(2, 1)));
+		assertEquals("", stream.getText(Interval.of(-1, 2)));
+	}
+
+	@Test
+	void testLookBehindAndSeek() {
+		CharStream stream = new CharSequenceCharStream("a\r\nb");
+		assertEquals(IntStream.EOF, stream.LA(-1));
+		assertEquals(0, stream.LA(0));
+		assertEquals('a', stream.LA(1));
+
+		stream.seek(3);
+		assertEquals(3, stream.index());
+		assertEquals('b', stream.LA(1));
+		assertEquals('\n', stream.LA(-1));
+		assertEquals('\r', stream.LA(-2));
+		assertEquals(IntStream.EOF, stream.LA(2));
+
+		stream.consume();
+		assertEquals('b', stream.LA(-1));
+		assertEquals(IntStream.EOF, stream.LA(1));
+		assertThrows(IllegalStateException.class, stream::consume);
+
+		stream.seek(0);
+		assertEquals('a', stream.LA(1));
+		assertEquals(IntStream.EOF, stream.LA(-1));
+	}
+}
@@ -238,7 +238,7 @@ public class Fixtures {
 				if[AdjustColor] {
 	    			color: #124532;
 	    			if[UseLinkColor]{
-	        			bg-color: LinkColor;
+	        			background-color: LinkColor;
 	    			}
 				}
 			}
@@ -255,7 +255,7 @@ public class Fixtures {
 								.addChild(new ColorLiteral("#124532"))))
 							.addChild((new IfClause())
 									.addChild(new VariableReference("UseLinkColor"))
-									.addChild(new Declaration("bg-color").addChild(new VariableReference("LinkColor")))
+									.addChild(new Declaration("background-color").addChild(new VariableReference("LinkColor")))
 					))
         );
         /*
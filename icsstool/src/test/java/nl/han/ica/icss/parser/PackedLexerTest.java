@@ -0,0 +1,112 @@
+package nl.han.ica.icss.parser;
+
+import org.antlr.v4.runtime.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Differential tests: PackedLexer must produce the same token stream and lexer errors as ICSSLexer.
+ */
+class PackedLexerTest {
+
+	List<String> antlrTokens(String input, List<String> errors) {
+		ICSSLexer lexer = new ICSSLexer(CharStreams.fromString(input));
+		lexer.removeErrorListeners();
+		lexer.addErrorListener(collectErrors(errors));
+		return describe(new CommonTokenStream(lexer));
+	}
+
+	List<String> packedTokens(String input, List<String> errors) {
+		PackedLexer lexer = new PackedLexer(CharStreams.fromString(input));
+		lexer.addErrorListener(collectErrors(errors));
+		return describe(new CommonTokenStream(lexer));
+	}
+
+	BaseErrorListener collectErrors(List<String> errors) {
+		return new BaseErrorListener() {
+			public void syntaxError(Recognizer<?,?> recognizer, Object offendingSymbol, int line, int charPositionInLine, String msg, RecognitionException e) {
+				errors.add(line + ":" + charPositionInLine + " " + msg);
+			}
+		};
+	}
+
+	List<String> describe(CommonTokenStream tokens) {
+		tokens.fill();
+		List<String> result = new ArrayList<>();
+		for (Token token : tokens.getTokens()) {
+			result.add(token.getType() + " '" + token.getText() + "' " + token.getStartIndex() + ".." + token.getStopIndex()
+					+ " @" + token.getLine() + ":" + token.getCharPositionInLine() + " #" + token.getTokenIndex()
+					+ " ch" + token.getChannel());
+		}
+		return result;
+	}
+
+	void assertSameTokens(String input) {
+		List<String> antlrErrors = new ArrayList<>();
+		List<String> packedErrors = new ArrayList<>();
+		assertEquals(antlrTokens(input, antlrErrors), packedTokens(input, packedErrors), input);
+		assertEquals(antlrErrors, packedErrors, input);
+	}
+
+	void assertSameTokensForFile(String resource) throws IOException {
+		InputStream inputStream = this.getClass().getClassLoader().getResourceAsStream(resource);
+		assertSameTokens(CharStreams.fromStream(inputStream).toString());
+	}
+
+	@Test
+	void testLevel0() throws IOException {
+		assertSameTokensForFile("level0.icss");
+	}
+	@Test
+	void testLevel1() throws IOException {
+		assertSameTokensForFile("level1.icss");
+	}
+	@Test
+	void testLevel2() throws IOException {
+		assertSameTokensForFile("level2.icss");
+	}
+	@Test
+	void testLevel3() throws IOException {
+		assertSameTokensForFile("level3.icss");
+	}
+	@Test
+	void testKeywordsAndIdentifiers() {
+		assertSameTokens("if iff if-x i TRUE TRUEX FALSE FALS Foo_Bar9 x-y-z a0");
+	}
+	@Test
+	void testNumbers() {
+		assertSameTokens("10 10px 10% 10p 10pz 10pxx 007 1px2px 3%%");
+	}
+	@Test
+	void testColorsAndSelectors() {
+		assertSameTokens("#abcdef #abcdeg #abcdef0 #abc #ABCDEF #abcdefG #1234567 .menu .a-b #a-b");
+	}
+	@Test
+	void testOperators() {
+		assertSameTokens("a:=b : = :: [ ] { } ; + - * -- :=:=");
+	}
+	@Test
+	void testWhitespaceAndPositions() {
+		assertSameTokens("\n\n  p {\r\n\twidth:\t10px;\n}\n  \n");
+	}
+	@Test
+	void testEmptyInput() {
+		assertSameTokens("");
+		assertSameTokens("   \n ");
+	}
+	@Test
+	void testRecognitionErrors() {
+		assertSameTokens("p { width: 10px; } ! @ = ~");
+		assertSameTokens("# . #\n.\t# x");
+		assertSameTokens("a # ");
+		assertSameTokens("a #");
+		assertSameTokens("a .");
+		assertSameTokens("café €");
+	}
+}
@@ -1,5 +1,6 @@
 package nl.han.ica.icss.parser;
 
+import nl.han.ica.icss.Pipeline;
 import nl.han.ica.icss.ast.AST;
 import org.antlr.v4.runtime.*;
 import org.antlr.v4.runtime.misc.ParseCancellationException;
@@ -9,9 +10,9 @@ import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.fail;
+import static org.junit.jupiter.api.Assertions.*;
 
 class ParserTest {
 
@@ -55,6 +56,33 @@ class ParserTest {
 		return listener.getAST();
 	}
 
+	AST parseTestFileWithoutParseTree(String resource) throws IOException {
+
+		ClassLoader classLoader = this.getClass().getClassLoader();
+
+		InputStream inputStream = classLoader.getResourceAsStream(resource);
+		CharStream charStream = CharStreams.fromStream(inputStream);
+		ICSSLexer lexer = new ICSSLexer(charStream);
+
+		CommonTokenStream tokens = new CommonTokenStream(lexer);
+
+		ICSSParser parser = new ICSSParser(tokens);
+		parser.setErrorHandler(new BailErrorStrategy());
+		parser.removeErrorListeners();
+
+		//Build the AST from the parse events
+		ASTListener listener = new ASTListener();
+		parser.setBuildParseTree(false);
+		parser.addParseListener(listener);
+		try {
+			parser.stylesheet();
+		} catch(ParseCancellationException e) {
+			fail(e.getMessage());
+		}
+
+		return listener.getAST();
+	}
+
 	@Test
 	void testParseLevel0() throws IOException {
 
@@ -83,4 +111,89 @@ class ParserTest {
 		AST exp = Fixtures.uncheckedLevel3();
 		assertEquals(exp,sut);
 	}
+
+	@Test
+	void testParseLevel0WithoutParseTree() throws IOException {
+
+		AST sut = parseTestFileWithoutParseTree("level0.icss");
+		AST exp = Fixtures.uncheckedLevel0();
+		assertEquals(exp,sut);
+	}
+	@Test
+	void testParseLevel1WithoutParseTree() throws IOException {
+
+		AST sut = parseTestFileWithoutParseTree("level1.icss");
+		AST exp = Fixtures.uncheckedLevel1();
+		assertEquals(exp,sut);
+	}
+	@Test
+	void testParseLevel2WithoutParseTree() throws IOException {
+
+		AST sut = parseTestFileWithoutParseTree("level2.icss");
+		AST exp = Fixtures.uncheckedLevel2();
+		assertEquals(exp,sut);
+	}
+	@Test
+	void testParseLevel3WithoutParseTree() throws IOException {
+
+		AST sut = parseTestFileWithoutParseTree("level3.icss");
+		AST exp = Fixtures.uncheckedLevel3();
+		assertEquals(exp,sut);
+	}
+
+	String level(String resource) throws IOException {
+		return new String(this.getClass().getClassLoader().getResourceAsStream(resource).readAllBytes(), StandardCharsets.UTF_8);
+	}
+
+	@Test
+	void testSllParseNeedsNoFallback() throws IOException {
+		Pipeline pipeline = new Pipeline();
+		pipeline.parseString(level("level3.icss"));
+		assertTrue(pipeline.isParsed());
+		assertEquals(Fixtures.uncheckedLevel3(), pipeline.getAST());
+		assertEquals(1, pipeline.getSllParseCount());
+		assertEquals(0, pipeline.getLlFallbackCount());
+
+		//Syntax errors are reported by the LL pass
+		pipeline.parseString("p { width 10px; }");
+		assertFalse(pipeline.isParsed());
+		assertFalse(pipeline.getErrors().isEmpty());
+		assertEquals(1, pipeline.getSllParseCount());
+		assertEquals(1, pipeline.getLlFallbackCount());
+
+		pipeline.resetParseCounts();
+		assertEquals(0, pipeline.getSllParseCount());
+		assertEquals(0, pipeline.getLlFallbackCount());
+	}
+
+	@Test
+	void testLlFallbackParsesWhatSllRejects() throws IOException {
+		//ICSS has no input that SLL prediction rejects and LL accepts, the SLL pass is made to reject
+		//the first decision instead
+		Pipeline pipeline = new Pipeline() {
+			@Override
+			protected ANTLRErrorStrategy createSllErrorStrategy() {
+				return new BailErrorStrategy() {
+					@Override
+					public void sync(Parser recognizer) {
+						throw new ParseCancellationException("SLL conflict");
+					}
+				};
+			}
+		};
+		pipeline.setBuildParseTree(false);
+		pipeline.parseString(level("level3.icss"));
+		assertTrue(pipeline.isParsed());
+		assertTrue(pipeline.getErrors().isEmpty());
+		assertEquals(Fixtures.uncheckedLevel3(), pipeline.getAST());
+		assertEquals(0, pipeline.getSllParseCount());
+		assertEquals(1, pipeline.getLlFallbackCount());
+
+		//The counts belong to the pipeline
+		Pipeline other = new Pipeline();
+		other.parseString(level("level0.icss"));
+		assertEquals(1, other.getSllParseCount());
+		assertEquals(0, other.getLlFallbackCount());
+		assertEquals(1, pipeline.getLlFallbackCount());
+	}
 }
@@ -0,0 +1,60 @@
+package nl.han.ica.icss.snapshot;
+
+import com.google.common.io.Resources;
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.parser.Fixtures;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ASTSnapshotTest {
+
+	AST roundTrip(AST ast) throws IOException {
+		return ASTSnapshot.read(ByteBuffer.wrap(ASTSnapshot.toBytes(ast)));
+	}
+
+	@Test
+	void testFixturesRoundTrip() throws IOException {
+		for (AST ast : new AST[]{Fixtures.uncheckedLevel0(), Fixtures.uncheckedLevel1(), Fixtures.uncheckedLevel2(), Fixtures.uncheckedLevel3()}) {
+			AST loaded = roundTrip(ast);
+			assertEquals(ast, loaded);
+			assertEquals(ast.toString(), loaded.toString());
+		}
+	}
+	@Test
+	void testTransformedFileRoundTrip(@TempDir Path directory) throws IOException {
+		Pipeline pipeline = new Pipeline();
+		pipeline.parseString(Resources.toString(Resources.getResource("level3.icss"), StandardCharsets.UTF_8));
+		assertTrue(pipeline.check());
+		pipeline.transform();
+
+		Path file = directory.resolve("level3.icsa");
+		ASTSnapshot.write(pipeline.getAST(), file);
+		AST loaded = ASTSnapshot.read(file);
+		assertEquals(pipeline.getAST(), loaded);
+		assertEquals(pipeline.generate(), loaded.toString());
+	}
+	@Test
+	void testErrorsRoundTrip() throws IOException {
+		Pipeline pipeline = new Pipeline();
+		pipeline.parseString("p { width: Undefined; color: 10px; }");
+		assertFalse(pipeline.check());
+
+		AST loaded = roundTrip(pipeline.getAST());
+		assertEquals(pipeline.getAST().getErrors().size(), loaded.getErrors().size());
+		assertEquals(pipeline.getAST().getErrors().get(0).toString(), loaded.getErrors().get(0).toString());
+	}
+	@Test
+	void testRejectsOtherData() {
+		assertThrows(IOException.class, () -> ASTSnapshot.read(ByteBuffer.wrap(new byte[]{1, 2, 3})));
+		byte[] truncated = ASTSnapshot.toBytes(Fixtures.uncheckedLevel1());
+		assertThrows(IOException.class, () -> ASTSnapshot.read(ByteBuffer.wrap(truncated, 0, truncated.length - 3)));
+	}
+}
@@ -0,0 +1,58 @@
+package nl.han.ica.icss.transforms;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.Declaration;
+import nl.han.ica.icss.ast.Literal;
+import nl.han.ica.icss.ast.Operation;
+import nl.han.ica.icss.ast.Stylerule;
+import nl.han.ica.icss.ast.VariableReference;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EvalExpressionsTest {
+
+	static AST evaluate(String source) {
+		Pipeline pipeline = new Pipeline();
+		pipeline.parseString(source);
+		AST ast = pipeline.getAST();
+		new EvalExpressions().apply(ast);
+		return ast;
+	}
+
+	@Test
+	void testExpressionsThatCannotBeEvaluatedStay() {
+		AST ast = evaluate("W := 10px;\np { width: 10px + 5%; color: Undefined; height: W * 2; }");
+		Stylerule rule = (Stylerule) ast.root.body.get(1);
+		assertTrue(((Declaration) rule.body.get(0)).expression instanceof Operation);
+		assertTrue(((Declaration) rule.body.get(1)).expression instanceof VariableReference);
+		assertTrue(((Declaration) rule.body.get(2)).expression instanceof Literal);
+		assertTrue(ast.toString().contains("20px"));
+	}
+
+	@Test
+	void testEveryReferenceGetsItsOwnValue() {
+		AST ast = evaluate("W := 10px;\np { width: W; height: W; }");
+		Declaration width = (Declaration) ((Stylerule) ast.root.body.get(1)).body.get(0);
+		Declaration height = (Declaration) ((Stylerule) ast.root.body.get(1)).body.get(1);
+		assertNotSame(width.expression, height.expression);
+		assertEquals(width.expression, height.expression);
+		assertSame(width, width.expression.getParent());
+		assertSame(height, height.expression.getParent());
+	}
+
+	@Test
+	void testReferencesShareTheInternedValue() {
+		Pipeline pipeline = new Pipeline();
+		pipeline.setHashConsing(true);
+		pipeline.parseString("W := 10px;\np { width: W; height: W; }");
+		AST ast = pipeline.getAST();
+		new EvalExpressions(pipeline.getInterner()).apply(ast);
+		Declaration width = (Declaration) ((Stylerule) ast.root.body.get(1)).body.get(0);
+		Declaration height = (Declaration) ((Stylerule) ast.root.body.get(1)).body.get(1);
+		assertSame(width.expression, height.expression);
+		assertTrue(width.expression.isShared());
+		assertNull(width.expression.getParent());
+	}
+}